@@ -3,16 +3,27 @@ package hcmute.vina.vectorsearchservice.builder;
 import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
 import hcmute.vina.vectorsearchservice.enums.CourseStatus;
 
+import hcmute.vina.vectorsearchservice.util.TextNormalizer;
+
 import java.util.Map;
+import java.util.TreeSet;
 
 public class CourseSqlBuilder {
 	
     public static String buildWhere(CourseSearchRequest req, Map<String, Object> params) {
+        return " WHERE" + buildConditions(req, params);
+    }
+
+    /**
+     * Filter predicates on {@code course_search_doc d}, without the leading WHERE, so they can
+     * also be pushed into the ANN scan.
+     */
+    public static String buildConditions(CourseSearchRequest req, Map<String, Object> params) {
     	
-        StringBuilder sb = new StringBuilder(" WHERE");
+        StringBuilder sb = new StringBuilder();
         
         // STATUS = PUBLISHED
-        sb.append(" c.status = :status");
+        sb.append(" d.status = :status");
         params.put("status", CourseStatus.PUBLISHED.name());
                 
         // KEYWORD (search in name + description)
@@ -24,56 +35,100 @@ public class CourseSqlBuilder {
         // SINGLE CATEGORY
         if (has(req.getCategorySlug())) {
             sb.append("""
-                AND cate.slug = :categorySlug
+                AND d.category_slug = :categorySlug
             """);
             params.put("categorySlug", req.getCategorySlug());
         }
 
         // MULTIPLE CATEGORIES (IN)
         if (req.getCategorieSlugs() != null && !req.getCategorieSlugs().isEmpty()) {
-            sb.append(" AND cate.slug = ANY(:categorySlugs) ");
+            sb.append(" AND d.category_slug = ANY(:categorySlugs) ");
             params.put("categorySlugs", req.getCategorieSlugs().toArray(new String[0]));
         }
 
         // LEVEL
         if (has(req.getLevel())) {
-            sb.append(" AND c.level = :level ");
-            params.put("level", req.getLevel());
+            sb.append(" AND d.level = :level ");
+            params.put("level", req.getLevel().name());
         }
 
         // LANGUAGE
         if (has(req.getLanguage())) {
-            sb.append(" AND c.language = :language ");
+            sb.append(" AND d.language = :language ");
             params.put("language", req.getLanguage());
         }
 
         // MIN PRICE
         if (req.getMinPrice() != null) {
-            sb.append(" AND c.price >= :minPrice ");
+            sb.append(" AND d.price >= :minPrice ");
             params.put("minPrice", req.getMinPrice());
         }
 
         // MAX PRICE
         if (req.getMaxPrice() != null) {
-            sb.append(" AND c.price <= :maxPrice ");
+            sb.append(" AND d.price <= :maxPrice ");
             params.put("maxPrice", req.getMaxPrice());
         }
 
         // MIN RATING
         if (req.getMinRating() != null) {
-            sb.append(" AND c.rating >= :minRating ");
+            sb.append(" AND d.rating >= :minRating ");
             params.put("minRating", req.getMinRating());
         }
 
-        // INSTRUCTOR ID
+        // INSTRUCTOR ID (any instructor of the course)
         if (req.getInstructorId() != null) {
-            sb.append(" AND u.id = :instructorId ");
+            sb.append(" AND :instructorId = ANY(d.instructor_ids) ");
             params.put("instructorId", req.getInstructorId());
         }
         
         return sb.toString();
     }
 
+    /**
+     * Restricts vector comparisons to rows embedded by {@code embeddingModel}; during a
+     * provider switch the other rows hold vectors from a different space.
+     */
+    public static String embeddingModelCondition(String embeddingModel, Map<String, Object> params) {
+        params.put("embeddingModel", embeddingModel);
+        return " AND d.embedding_model = :embeddingModel ";
+    }
+
+    /**
+     * Whether the request narrows results beyond the default published-only filter.
+     */
+    public static boolean hasFilters(CourseSearchRequest req) {
+        return has(req.getCategorySlug())
+                || (req.getCategorieSlugs() != null && !req.getCategorieSlugs().isEmpty())
+                || has(req.getLevel())
+                || has(req.getLanguage())
+                || req.getMinPrice() != null
+                || req.getMaxPrice() != null
+                || req.getMinRating() != null
+                || req.getInstructorId() != null;
+    }
+
+    /**
+     * Canonical form of the request (normalized keyword, filters in a fixed order, category
+     * list sorted, prices without trailing zeros): equal for requests that return the same
+     * results.
+     */
+    public static String canonicalKey(CourseSearchRequest req) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("kw=").append(TextNormalizer.normalize(req.getKeyword()));
+        if (has(req.getCategorySlug())) sb.append("|cat=").append(req.getCategorySlug());
+        if (req.getCategorieSlugs() != null && !req.getCategorieSlugs().isEmpty()) {
+            sb.append("|cats=").append(String.join(",", new TreeSet<>(req.getCategorieSlugs())));
+        }
+        if (has(req.getLevel())) sb.append("|level=").append(req.getLevel());
+        if (has(req.getLanguage())) sb.append("|lang=").append(req.getLanguage());
+        if (req.getMinPrice() != null) sb.append("|minPrice=").append(req.getMinPrice().stripTrailingZeros().toPlainString());
+        if (req.getMaxPrice() != null) sb.append("|maxPrice=").append(req.getMaxPrice().stripTrailingZeros().toPlainString());
+        if (req.getMinRating() != null) sb.append("|minRating=").append(req.getMinRating());
+        if (req.getInstructorId() != null) sb.append("|instructor=").append(req.getInstructorId());
+        return sb.toString();
+    }
+
     private static boolean has(Object obj) {
         if (obj == null) {
             return false;
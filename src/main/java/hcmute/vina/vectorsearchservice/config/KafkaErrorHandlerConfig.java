@@ -0,0 +1,71 @@
+package hcmute.vina.vectorsearchservice.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import hcmute.vina.vectorsearchservice.constant.KafkaTopic;
+
+/**
+ * Error handling for the shared {@code kafkaListenerContainerFactory}, which the platform
+ * library builds without one. A batch whose listener throws is retried with exponential
+ * backoff (the consumer is paused meanwhile, so the poll interval is not exceeded); once
+ * the retries are used up its records go to {@link KafkaTopic#VECTOR_DLT_TOPIC} and the
+ * offsets move past them.
+ */
+@Configuration
+public class KafkaErrorHandlerConfig {
+
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(
+            KafkaProperties kafkaProperties,
+            @Value("${search.kafka.retry.max-retries:6}") int maxRetries,
+            @Value("${search.kafka.retry.initial-interval:1s}") Duration initialInterval,
+            @Value("${search.kafka.retry.max-interval:1m}") Duration maxInterval) {
+        // Records are already deserialized events, so the dead letters are written as JSON
+        Map<String, Object> producerProps = kafkaProperties.buildProducerProperties(null);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        KafkaTemplate<Object, Object> deadLetterTemplate =
+                new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps));
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(deadLetterTemplate,
+                (record, ex) -> new TopicPartition(KafkaTopic.VECTOR_DLT_TOPIC, -1));
+
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(maxRetries);
+        backOff.setInitialInterval(initialInterval.toMillis());
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(maxInterval.toMillis());
+        return new DefaultErrorHandler(recoverer, backOff);
+    }
+
+    @Bean
+    public static BeanPostProcessor kafkaErrorHandlerInstaller(ObjectProvider<DefaultErrorHandler> kafkaErrorHandler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof ConcurrentKafkaListenerContainerFactory<?, ?> factory
+                        && "kafkaListenerContainerFactory".equals(beanName)) {
+                    factory.setCommonErrorHandler(kafkaErrorHandler.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
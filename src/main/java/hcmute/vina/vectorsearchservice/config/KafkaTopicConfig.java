@@ -15,4 +15,10 @@ public class KafkaTopicConfig {
         return TopicBuilder.name(KafkaTopic.VECTOR_TOPIC)
                 .build();
     }
+
+    @Bean
+    public NewTopic createVectorDeadLetterTopic() {
+        return TopicBuilder.name(KafkaTopic.VECTOR_DLT_TOPIC)
+                .build();
+    }
 }
\ No newline at end of file
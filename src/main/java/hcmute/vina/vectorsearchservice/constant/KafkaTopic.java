@@ -5,4 +5,6 @@ import lombok.experimental.UtilityClass;
 @UtilityClass
 public class KafkaTopic {
 	public static final String VECTOR_TOPIC = "vector-topic";
+	// Course events that still failed to index after the retries
+	public static final String VECTOR_DLT_TOPIC = VECTOR_TOPIC + ".DLT";
 }
@@ -3,11 +3,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import hcmute.vina.vectorsearchservice.dto.CourseSearchResult;
 import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
 import hcmute.vina.vectorsearchservice.service.CourseSearchService;
 import lombok.RequiredArgsConstructor;
@@ -18,19 +20,24 @@ import vn.vinaacademy.common.response.ApiResponse;
 @RequestMapping("/api/v1/courses")
 public class CourseController {
 
+    static final String SEARCH_CURSOR_HEADER = "X-Search-Cursor";
+
     private final CourseSearchService courseSearchService;
 
 
     /**
-     * Tìm kiếm vector courses theo keyword và filter request
+     * Tìm kiếm vector courses theo keyword và filter request.
+     * The ranking is kept under the cursor returned in the X-Search-Cursor header; sending it
+     * back with the next page serves that page from the same ranking.
      */
     @GetMapping("/aisearch")
-    public ApiResponse<Page<CourseDto>> searchCourses(
+    public ResponseEntity<ApiResponse<Page<CourseDto>>> searchCourses(
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "0") int page,
               @RequestParam(defaultValue = "9") int size,
           @RequestParam(required = false) Boolean semantic,
-            @ModelAttribute CourseSearchRequest req 
+            @ModelAttribute CourseSearchRequest req,
+            @RequestHeader(name = SEARCH_CURSOR_HEADER, required = false) String cursor
     ) {
         // Gán keyword từ param nếu có
         if (keyword != null && !keyword.isEmpty()) {
@@ -41,6 +48,11 @@ public class CourseController {
             req.setSemantic(semantic);
         }
 
-        return ApiResponse.success(courseSearchService.search(req, page, size));
+        CourseSearchResult result = courseSearchService.search(req, page, size, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getCursor() != null) {
+            response.header(SEARCH_CURSOR_HEADER, result.getCursor());
+        }
+        return response.body(ApiResponse.success(result.getPage()));
     }
 }
@@ -0,0 +1,26 @@
+package hcmute.vina.vectorsearchservice.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import hcmute.vina.vectorsearchservice.dto.BackfillStatus;
+import hcmute.vina.vectorsearchservice.migrate.DatabaseMigrationService;
+import lombok.RequiredArgsConstructor;
+import vn.vinaacademy.common.response.ApiResponse;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/indexing")
+public class IndexingController {
+
+    private final DatabaseMigrationService databaseMigrationService;
+
+    /**
+     * Tiến độ của tiến trình embedding nền cho các khoá học chưa có embedding
+     */
+    @GetMapping("/backfill")
+    public ApiResponse<BackfillStatus> getBackfillStatus() {
+        return ApiResponse.success(databaseMigrationService.getStatus());
+    }
+}
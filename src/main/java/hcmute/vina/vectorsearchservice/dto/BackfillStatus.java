@@ -0,0 +1,21 @@
+package hcmute.vina.vectorsearchservice.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import hcmute.vina.vectorsearchservice.enums.BackfillState;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder(toBuilder = true)
+public class BackfillStatus {
+	private BackfillState state;
+	// Courses indexed by this pass plus those still missing an embedding when the run started
+	private long total;
+	private long indexed;
+	private long failed;
+	private UUID lastCourseId;
+	private Instant startedAt;
+	private Instant finishedAt;
+}
@@ -1,6 +1,8 @@
 package hcmute.vina.vectorsearchservice.dto;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import hcmute.vina.vectorsearchservice.enums.CourseLevel;
 import hcmute.vina.vectorsearchservice.enums.CourseStatus;
 import lombok.AllArgsConstructor;
@@ -57,4 +59,12 @@ public class CourseDto extends BaseDto {
     
     private String instructorName;
 
+    // Lexical scoring inputs, internal to ranking
+    @JsonIgnore
+    private CourseFeatures features;
+
+    // Precomputed reranker document, null for courses indexed before it was stored
+    @JsonIgnore
+    private String rerankText;
+
 }
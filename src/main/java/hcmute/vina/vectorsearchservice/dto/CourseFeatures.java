@@ -0,0 +1,39 @@
+package hcmute.vina.vectorsearchservice.dto;
+
+import hcmute.vina.vectorsearchservice.util.TextNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lexical scoring inputs of a course, computed once at index time and stored in
+ * course_embedding: normalized name, category and description (HTML removed). The name's
+ * token ids come from the ranking code's per-course cache, because token ids are local to
+ * each instance's dictionary and cannot be stored with the row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseFeatures {
+
+	// Bump when the derivation of the stored features changes; the backfill recomputes rows of older versions
+	public static final int VERSION = 1;
+
+	private String name;
+	private String category;
+	private String description;
+	// Sorted distinct token ids of the name
+	private int[] nameTokens;
+
+	public CourseFeatures(String name, String category, String description) {
+		this(name, category, description, null);
+	}
+
+	/** Features computed from the hydrated fields, for courses indexed before they were stored. */
+	public static CourseFeatures of(CourseDto course) {
+		return new CourseFeatures(
+				TextNormalizer.normalize(course.getName()),
+				TextNormalizer.normalize(course.getCategoryName()),
+				TextNormalizer.normalize(course.getDescription()));
+	}
+}
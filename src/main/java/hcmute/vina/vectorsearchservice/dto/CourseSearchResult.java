@@ -0,0 +1,14 @@
+package hcmute.vina.vectorsearchservice.dto;
+
+import org.springframework.data.domain.Page;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CourseSearchResult {
+	private Page<CourseDto> page;
+	// Pass back to fetch further pages of the same ranking; null when none was stored
+	private String cursor;
+}
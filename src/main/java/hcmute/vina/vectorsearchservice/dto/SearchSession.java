@@ -0,0 +1,24 @@
+package hcmute.vina.vectorsearchservice.dto;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Final ranking of one search, kept under a cursor so later pages are sliced from it
+ * instead of running the search again. Arrays are parallel and in rank order.
+ */
+@Data
+@AllArgsConstructor
+public class SearchSession {
+	// Canonical request the ranking belongs to, see CourseSqlBuilder#canonicalKey
+	private String requestKey;
+	private UUID[] courseIds;
+	private float[] relevanceScores;
+	private double[] distances;
+
+	public int size() {
+		return courseIds.length;
+	}
+}
@@ -25,4 +25,24 @@ public class CourseEmbedding {
     @Column(columnDefinition = "vector(1536)")
     private float[] embedding;
 
+    // SHA-256 of model, dimension and the exact text that was embedded
+    private String contentHash;
+
+    private String embeddingModel;
+
+    private Integer embeddingDim;
+
+    // Normalized text for lexical scoring, see CourseFeatures
+    private String nameNorm;
+
+    private String categoryNorm;
+
+    private String descriptionNorm;
+
+    // CourseFeatures.VERSION the derived columns were computed with
+    private Integer featuresVersion;
+
+    // Plain text document for the reranker, see RerankText
+    private String rerankDoc;
+
 }
@@ -0,0 +1,41 @@
+package hcmute.vina.vectorsearchservice.entity;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import hcmute.vina.vectorsearchservice.enums.BackfillState;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a background indexing job, so an interrupted run resumes after the last
+ * course it finished.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IndexingCheckpoint {
+    @Id
+    private String jobName;
+
+    @Enumerated(EnumType.STRING)
+    private BackfillState status;
+
+    private UUID lastCourseId;
+
+    private long indexed;
+
+    private long failed;
+
+    private Instant startedAt;
+
+    private Instant updatedAt;
+}
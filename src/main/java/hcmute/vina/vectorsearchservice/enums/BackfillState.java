@@ -0,0 +1,5 @@
+package hcmute.vina.vectorsearchservice.enums;
+
+public enum BackfillState {
+    IDLE, RUNNING, COMPLETED, FAILED
+}
@@ -0,0 +1,10 @@
+package hcmute.vina.vectorsearchservice.enums;
+
+public enum VectorSearchStrategy {
+    // Approximate nearest neighbour index, filters applied during or after the scan
+    ANN,
+    // Distance to every course matching the filters, no index
+    EXACT_SCAN,
+    // Exact scan with distances computed in process from the in-memory vectors
+    EXACT_IN_MEMORY
+}
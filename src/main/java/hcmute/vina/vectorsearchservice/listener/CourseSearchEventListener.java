@@ -1,75 +1,73 @@
 package hcmute.vina.vectorsearchservice.listener;
 
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 import hcmute.vina.vectorsearchservice.constant.KafkaTopic;
-import hcmute.vina.vectorsearchservice.entity.CourseEmbedding;
-import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepository;
-import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepositoryCustom;
-import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
+import hcmute.vina.vectorsearchservice.service.CourseIndexingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import vn.vinaacademy.common.exception.BadRequestException;
 import vn.vinaacademy.kafka.event.CourseEmbeddedEvent;
 
 
+/**
+ * Consumes course change events in batches: duplicates of a course within one poll collapse
+ * to the latest event, the remaining texts are embedded with multi-input requests and
+ * upserted in one JDBC batch, then the whole poll is acknowledged. A failed poll is rethrown
+ * unacknowledged; the error handler from {@code KafkaErrorHandlerConfig} retries it with
+ * backoff and then sends its events to the dead letter topic.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class CourseSearchEventListener {
-    private final EmbeddingService embeddingService;
-    private final CourseEmbeddingRepositoryCustom courseEmbeddingRepository;
-    private final CourseEmbeddingRepository realCourseEmbeddingRepository;
+    private final CourseIndexingService courseIndexingService;
 
     @KafkaListener(topics = KafkaTopic.VECTOR_TOPIC, groupId = "${spring.kafka.consumer.group-id:vector-group}",
-            containerFactory = "kafkaListenerContainerFactory")
-    public void handleNotificationEvent(CourseEmbeddedEvent courseEmbeddedEvent, Acknowledgment acknowledgment) {
-        try {
-            if (courseEmbeddedEvent == null || courseEmbeddedEvent.getId() == null) {
-                throw new RuntimeException("CourseEmbeddedEvent is null or missing id");
+            containerFactory = "kafkaListenerContainerFactory", batch = "true",
+            properties = "max.poll.records=${search.kafka.max-poll-records:200}")
+    public void handleNotificationEvents(List<CourseEmbeddedEvent> courseEmbeddedEvents, Acknowledgment acknowledgment) {
+        // Records of one course arrive in order on its partition, so the last one wins
+        Map<UUID, CourseTransfer> latest = new LinkedHashMap<>();
+        for (CourseEmbeddedEvent event : courseEmbeddedEvents) {
+            if (event == null || event.getId() == null) {
+                log.warn("Skipping CourseEmbeddedEvent that is null or missing id");
+                continue;
             }
+            latest.remove(event.getId());
+            latest.put(event.getId(), toCourseTransfer(event));
+        }
 
-            String text = String.join(" | ",
-                    nullToEmpty(courseEmbeddedEvent.getTitle()),
-                    nullToEmpty(courseEmbeddedEvent.getDescription()),
-                    nullToEmpty(courseEmbeddedEvent.getInstructorName()),
-                    nullToEmpty(courseEmbeddedEvent.getCategoryName()),
-                    nullToEmpty(courseEmbeddedEvent.getPrice().toPlainString())
-            );
-
-            float[] vector = embeddingService.toFloatArray(embeddingService.createEmbedding(text));
-
-            Optional<CourseEmbedding> existing = courseEmbeddingRepository.findById(courseEmbeddedEvent.getId());
-
-            CourseEmbedding embedding;
-            if (existing.isPresent()) {
-                embedding = existing.get();
-                embedding.setEmbedding(vector); 
-            } else {
-                embedding = CourseEmbedding.builder()
-                        .courseId(courseEmbeddedEvent.getId())
-                        .embedding(vector)
-                        .build();
+        if (!latest.isEmpty()) {
+            try {
+                courseIndexingService.indexCourses(List.copyOf(latest.values()));
+            } catch (RuntimeException e) {
+                // Not acknowledged: the error handler retries the poll, then dead-letters it
+                log.error("Failed to index {} courses from {} events: {}",
+                        latest.size(), courseEmbeddedEvents.size(), e.getMessage());
+                throw e;
             }
-
-            courseEmbeddingRepository.save(embedding);
-
-
-            log.info("Saved embedding for course {}", courseEmbeddedEvent.getId());
-
-            acknowledgment.acknowledge();
-        } catch (BadRequestException e) {
-            log.error("Error processing search event: {}", e.getMessage());
-        } catch (Exception e) {
-            log.error("Unexpected error processing search event: {}", e.getMessage(), e);
+            log.info("Saved embeddings for {} courses from {} events", latest.size(), courseEmbeddedEvents.size());
         }
+
+        acknowledgment.acknowledge();
     }
 
-    private String nullToEmpty(String value) {
-        return value == null ? "" : value;
+    private CourseTransfer toCourseTransfer(CourseEmbeddedEvent event) {
+        return CourseTransfer.builder()
+                .courseId(event.getId())
+                .courseName(event.getTitle())
+                .description(event.getDescription())
+                .instructorName(event.getInstructorName())
+                .categoryName(event.getCategoryName())
+                .price(event.getPrice())
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package hcmute.vina.vectorsearchservice.listener;
+
+import java.util.List;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.constant.KafkaTopic;
+import hcmute.vina.vectorsearchservice.service.cache.SearchResultCache;
+import lombok.RequiredArgsConstructor;
+import vn.vinaacademy.kafka.event.CourseEmbeddedEvent;
+
+/**
+ * Stamps changed courses in this instance's {@link SearchResultCache}. Uses a consumer group
+ * of its own per instance start ({@code search.result-cache.consumer-group}), so every
+ * replica sees every course event, unlike {@link CourseSearchEventListener} where one
+ * replica indexes each event. The cache starts empty, so the group begins at the latest
+ * offset and never commits: the broker drops a group without offsets once it is empty.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchResultCacheInvalidationListener {
+
+    private final SearchResultCache searchResultCache;
+
+    @KafkaListener(topics = KafkaTopic.VECTOR_TOPIC,
+            groupId = "${search.result-cache.consumer-group:${spring.kafka.consumer.group-id:vector-group}-cache-${random.uuid}}",
+            containerFactory = "kafkaListenerContainerFactory", batch = "true",
+            properties = {"auto.offset.reset=latest", "enable.auto.commit=false"})
+    public void handleCourseEvents(List<CourseEmbeddedEvent> courseEmbeddedEvents) {
+        for (CourseEmbeddedEvent event : courseEmbeddedEvents) {
+            if (event != null && event.getId() != null) {
+                searchResultCache.onCourseChanged(event.getId(), event.getCategoryName());
+            }
+        }
+    }
+}
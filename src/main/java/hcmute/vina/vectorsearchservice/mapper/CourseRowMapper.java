@@ -1,6 +1,7 @@
 package hcmute.vina.vectorsearchservice.mapper;
 
 import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import hcmute.vina.vectorsearchservice.dto.CourseFeatures;
 import hcmute.vina.vectorsearchservice.enums.CourseLevel;
 import hcmute.vina.vectorsearchservice.enums.CourseStatus;
 import org.springframework.jdbc.core.RowMapper;
@@ -15,7 +16,7 @@ public class CourseRowMapper implements RowMapper<CourseDto> {
     public CourseDto mapRow(ResultSet rs, int rowNum) throws SQLException {
         CourseDto courseDto = new CourseDto();
 
-        courseDto.setId(UUID.fromString(rs.getString("id")));
+        courseDto.setId(rs.getObject("id", UUID.class));
         courseDto.setImage(rs.getString("image"));
         courseDto.setName(rs.getString("name"));
         courseDto.setDescription(rs.getString("description"));
@@ -36,14 +37,16 @@ public class CourseRowMapper implements RowMapper<CourseDto> {
         
         courseDto.setInstructorName(rs.getString("instructor_name"));
 
-        // Optional: distance column from query for semantic blending
-        try {
-            double d = rs.getDouble("distance");
-            courseDto.setDistance(d);
-        } catch (Exception ignored) {
-            // If distance not selected, leave default
+        // Precomputed scoring features; null for courses indexed before they were stored
+        String nameNorm = rs.getString("name_norm");
+        if (nameNorm != null) {
+            courseDto.setFeatures(new CourseFeatures(nameNorm,
+                    rs.getString("category_norm"), rs.getString("description_norm")));
         }
 
+        courseDto.setRerankText(rs.getString("rerank_doc"));
+
+        // Distance comes from the vector index stage, not from this row
         return courseDto;
     }
 }
@@ -1,47 +1,310 @@
 package hcmute.vina.vectorsearchservice.migrate;
 
-import jakarta.annotation.PostConstruct;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import javax.sql.DataSource;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import hcmute.vina.vectorsearchservice.dto.BackfillStatus;
+import hcmute.vina.vectorsearchservice.dto.CourseFeatures;
+import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
+import hcmute.vina.vectorsearchservice.entity.IndexingCheckpoint;
+import hcmute.vina.vectorsearchservice.enums.BackfillState;
+import hcmute.vina.vectorsearchservice.repository.CourseSourceRepository;
+import hcmute.vina.vectorsearchservice.repository.IndexingCheckpointRepository;
+import hcmute.vina.vectorsearchservice.repository.IndexingLeaseRepository;
+import hcmute.vina.vectorsearchservice.service.CourseIndexingService;
 import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import hcmute.vina.vectorsearchservice.util.RateLimiter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 /**
- * Simple migration service to ensure required database extensions exist.
+ * Embeds published courses that have no embedding from the configured model yet (new
+ * courses, or all of them after switching provider), in the background once the
+ * application is ready. Search serves whatever is already indexed in the meantime.
+ *
+ * <p>Courses are read in keyset pages by id. After each page the last id is stored in
+ * {@code indexing_checkpoint}, so a run interrupted by a restart resumes where it stopped.
+ * Embedding requests are rate limited and failed batches are retried with exponential
+ * backoff; batches that still fail are counted and skipped until the next run, and never
+ * fail startup.
  *
- * <p>Currently ensures that the PostgreSQL {@code unaccent} extension is created so that
- * accent-insensitive search can be used in JPA specifications.
+ * <p>Replicas share the checkpoint, so a run holds a lease on its checkpoint row, renewed
+ * after every page; on every other replica the run finds the lease taken and does nothing.
+ * The lease holds no connection, and at most half the connection pool is used by indexing
+ * workers, so search keeps its connections while a backfill runs.
+ *
+ * <p>Each run then recomputes the stored scoring features of courses derived by an older
+ * {@link CourseFeatures#VERSION}, which needs no embedding calls.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DatabaseMigrationService {
 
-  private final DataSource dataSource;
+  static final String BACKFILL_JOB = "course-embedding-backfill";
+
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+  private final CourseSourceRepository courseSourceRepository;
+  private final CourseIndexingService courseIndexingService;
   private final EmbeddingService embeddingService;
+  private final IndexingCheckpointRepository checkpointRepository;
+  private final IndexingLeaseRepository leaseRepository;
+
+  // Lease owner, unique per running instance
+  private final String instanceId = UUID.randomUUID().toString();
+
+  @Value("${search.backfill.enabled:true}")
+  private boolean enabled;
+
+  @Value("${search.indexing.batch-size:64}")
+  private int batchSize;
+
+  @Value("${search.indexing.parallelism:4}")
+  private int parallelism;
+
+  // Each worker needs a connection for its upsert and projection refresh
+  @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+  private int maximumPoolSize;
+
+  // A run that stops renewing its lease for this long can be taken over by another instance
+  @Value("${search.backfill.lease-duration:5m}")
+  private Duration leaseDuration;
 
-  @PostConstruct
-  public void migrate() {
-	  ensureData();
+  // Embedding requests (one per batch) per second, <= 0 disables the limit
+  @Value("${search.backfill.requests-per-second:2}")
+  private double requestsPerSecond;
+
+  @Value("${search.backfill.max-attempts:5}")
+  private int maxAttempts;
+
+  @Value("${search.backfill.initial-backoff:1s}")
+  private Duration initialBackoff;
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private volatile BackfillStatus status = BackfillStatus.builder().state(BackfillState.IDLE).build();
+  private volatile Thread worker;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (enabled) {
+      start();
+    }
   }
 
-  private void ensureData() {
-   
+  /**
+   * Start a backfill run unless one is already running.
+   *
+   * @return false when a run was already in progress
+   */
+  public boolean start() {
+    if (!running.compareAndSet(false, true)) {
+      return false;
+    }
+    Thread thread = new Thread(this::runBackfill, BACKFILL_JOB);
+    thread.setDaemon(true);
+    worker = thread;
+    thread.start();
+    return true;
+  }
 
+  public BackfillStatus getStatus() {
+    return status;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    Thread thread = worker;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  private void runBackfill() {
     try {
-    	embeddingService.migrateAllCourse();
-    	log.info("Migrate all courses successfully");
+      if (!leaseRepository.acquire(BACKFILL_JOB, instanceId, leaseDuration)) {
+        log.info("Course backfill is running on another instance, skipped");
+        return;
+      }
+      try {
+        backfill();
+      } finally {
+        leaseRepository.release(BACKFILL_JOB, instanceId);
+      }
+    } catch (RuntimeException e) {
+      log.error("Course backfill could not take or release its lease", e);
+      status = status.toBuilder().state(BackfillState.FAILED).finishedAt(Instant.now()).build();
+    } finally {
+      worker = null;
+      running.set(false);
+    }
+  }
+
+  private void renewLease() {
+    if (!leaseRepository.renew(BACKFILL_JOB, instanceId, leaseDuration)) {
+      throw new IllegalStateException("Course backfill lease was taken over by another instance");
+    }
+  }
+
+  // Leave at least half the pool to search
+  private int workers() {
+    return Math.max(1, Math.min(parallelism, maximumPoolSize / 2));
+  }
+
+  private void backfill() {
+    ExecutorService executor = Executors.newFixedThreadPool(workers());
+    RateLimiter rateLimiter = new RateLimiter(requestsPerSecond);
+    IndexingCheckpoint checkpoint = null;
+    String embeddingModel = embeddingService.getModelName();
+    try {
+      checkpoint = loadCheckpoint();
+      status = BackfillStatus.builder()
+          .state(BackfillState.RUNNING)
+          // Courses indexed before a restart no longer count as missing
+          .total(checkpoint.getIndexed() + courseSourceRepository.countCoursesMissingEmbedding(embeddingModel))
+          .indexed(checkpoint.getIndexed())
+          .failed(checkpoint.getFailed())
+          .lastCourseId(checkpoint.getLastCourseId())
+          .startedAt(checkpoint.getStartedAt())
+          .build();
+      log.info("Course backfill started, {} courses missing embedding, resuming after {}",
+          status.getTotal(), checkpoint.getLastCourseId());
+
+      int pageSize = Math.max(1, batchSize) * workers();
+      List<CourseTransfer> page;
+      while (!(page = courseSourceRepository.findCoursesMissingEmbedding(embeddingModel, checkpoint.getLastCourseId(), pageSize)).isEmpty()) {
+        indexPage(page, executor, rateLimiter, checkpoint);
+        checkpoint.setLastCourseId(lastCourseId(page));
+        saveCheckpoint(checkpoint);
+        renewLease();
+      }
+
+      refreshStaleFeatures();
+
+      checkpoint.setStatus(BackfillState.COMPLETED);
+      saveCheckpoint(checkpoint);
+      status = status.toBuilder().state(BackfillState.COMPLETED).finishedAt(Instant.now()).build();
+      log.info("Course backfill finished, {} indexed, {} failed", checkpoint.getIndexed(), checkpoint.getFailed());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.info("Course backfill interrupted, will resume after {}",
+          checkpoint == null ? null : checkpoint.getLastCourseId());
+      status = status.toBuilder().state(BackfillState.FAILED).finishedAt(Instant.now()).build();
     } catch (Exception ex) {
-      log.error("Failed to migrate all records course", ex);
-      throw new RuntimeException("Failed to migrate all records course", ex);
+      // The checkpoint stays RUNNING so the next start resumes from it
+      log.error("Course backfill aborted", ex);
+      status = status.toBuilder().state(BackfillState.FAILED).finishedAt(Instant.now()).build();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void indexPage(List<CourseTransfer> page, ExecutorService executor, RateLimiter rateLimiter,
+      IndexingCheckpoint checkpoint) throws InterruptedException {
+    List<List<CourseTransfer>> batches = new ArrayList<>();
+    int size = Math.max(1, batchSize);
+    for (int i = 0; i < page.size(); i += size) {
+      batches.add(page.subList(i, Math.min(page.size(), i + size)));
+    }
+
+    List<Future<Boolean>> futures = new ArrayList<>(batches.size());
+    for (List<CourseTransfer> batch : batches) {
+      futures.add(executor.submit(() -> indexWithRetry(batch, rateLimiter)));
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      boolean indexed;
+      try {
+        indexed = futures.get(i).get();
+      } catch (ExecutionException e) {
+        log.error("Failed to index batch of {} courses", batches.get(i).size(), e.getCause());
+        indexed = false;
+      }
+      if (indexed) {
+        checkpoint.setIndexed(checkpoint.getIndexed() + batches.get(i).size());
+      } else {
+        checkpoint.setFailed(checkpoint.getFailed() + batches.get(i).size());
+      }
     }
+    status = status.toBuilder()
+        .indexed(checkpoint.getIndexed())
+        .failed(checkpoint.getFailed())
+        .lastCourseId(lastCourseId(page))
+        .build();
+  }
+
+  private void refreshStaleFeatures() throws InterruptedException {
+    int pageSize = Math.max(1, batchSize) * workers();
+    long refreshed = 0;
+    UUID afterId = null;
+    List<CourseTransfer> page;
+    while (!(page = courseSourceRepository.findCoursesWithStaleFeatures(CourseFeatures.VERSION, afterId, pageSize)).isEmpty()) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      courseIndexingService.refreshFeatures(page);
+      refreshed += page.size();
+      afterId = lastCourseId(page);
+      renewLease();
+    }
+    if (refreshed > 0) {
+      log.info("Recomputed scoring features of {} courses", refreshed);
+    }
+  }
+
+  private boolean indexWithRetry(List<CourseTransfer> batch, RateLimiter rateLimiter) throws InterruptedException {
+    long backoffMs = initialBackoff.toMillis();
+    for (int attempt = 1; ; attempt++) {
+      rateLimiter.acquire();
+      try {
+        courseIndexingService.indexCourses(batch);
+        return true;
+      } catch (RuntimeException ex) {
+        if (attempt >= maxAttempts) {
+          log.error("Giving up on batch of {} courses starting at {} after {} attempts",
+              batch.size(), batch.get(0).getCourseId(), attempt, ex);
+          return false;
+        }
+        log.warn("Indexing batch starting at {} failed (attempt {}/{}), retrying in {} ms: {}",
+            batch.get(0).getCourseId(), attempt, maxAttempts, backoffMs, ex.getMessage());
+        Thread.sleep(backoffMs);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF.toMillis());
+      }
+    }
+  }
+
+  // Resume an interrupted run, otherwise start a new pass from the first course
+  private IndexingCheckpoint loadCheckpoint() {
+    IndexingCheckpoint checkpoint = checkpointRepository.findById(BACKFILL_JOB).orElse(null);
+    if (checkpoint != null && checkpoint.getStatus() == BackfillState.RUNNING) {
+      return checkpoint;
+    }
+    return saveCheckpoint(IndexingCheckpoint.builder()
+        .jobName(BACKFILL_JOB)
+        .status(BackfillState.RUNNING)
+        .startedAt(Instant.now())
+        .build());
+  }
+
+  private IndexingCheckpoint saveCheckpoint(IndexingCheckpoint checkpoint) {
+    checkpoint.setUpdatedAt(Instant.now());
+    return checkpointRepository.save(checkpoint);
+  }
+
+  private static UUID lastCourseId(List<CourseTransfer> page) {
+    return page.get(page.size() - 1).getCourseId();
   }
-  
-  
 }
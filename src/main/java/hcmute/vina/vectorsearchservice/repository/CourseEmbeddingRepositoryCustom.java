@@ -1,16 +1,44 @@
 package hcmute.vina.vectorsearchservice.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import hcmute.vina.vectorsearchservice.entity.CourseEmbedding;
 
 @Repository
 public class CourseEmbeddingRepositoryCustom {
+
+    private static final int FETCH_SIZE = 500;
+
+    // float[] is sent as binary real[]
+    private static final String UPSERT_SQL = "INSERT INTO course_embedding"
+            + " (course_id, embedding, content_hash, embedding_model, embedding_dim,"
+            + " name_norm, category_norm, description_norm, rerank_doc, features_version)"
+            + " VALUES (?, ?" + PgVectorCodec.PARAM_CAST + ", ?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT (course_id) DO UPDATE SET embedding = EXCLUDED.embedding,"
+            + " content_hash = EXCLUDED.content_hash, embedding_model = EXCLUDED.embedding_model,"
+            + " embedding_dim = EXCLUDED.embedding_dim, name_norm = EXCLUDED.name_norm,"
+            + " category_norm = EXCLUDED.category_norm, description_norm = EXCLUDED.description_norm,"
+            + " rerank_doc = EXCLUDED.rerank_doc, features_version = EXCLUDED.features_version, updated_at = now()";
+
+    // Derived columns only; the embedding and updated_at are left alone
+    private static final String UPDATE_FEATURES_SQL = "UPDATE course_embedding"
+            + " SET name_norm = ?, category_norm = ?, description_norm = ?, rerank_doc = ?, features_version = ?"
+            + " WHERE course_id = ?";
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
@@ -31,56 +59,106 @@ public class CourseEmbeddingRepositoryCustom {
     }
 
     public void save(CourseEmbedding embedding) {
-        String vectorString = arrayToVectorString(embedding.getEmbedding());
-        
-        // Check if exists
-        String checkSql = "SELECT COUNT(*) FROM course_embedding WHERE course_id = ?";
-        int count = jdbcTemplate.queryForObject(checkSql, Integer.class, embedding.getCourseId());
-        
-        if (count > 0) {
-            // Update existing - cast string to vector
-            String updateSql = "UPDATE course_embedding SET embedding = ?::vector WHERE course_id = ?";
-            jdbcTemplate.update(updateSql, vectorString, embedding.getCourseId());
-        } else {
-            // Insert new - cast string to vector
-            String insertSql = "INSERT INTO course_embedding (course_id, embedding) VALUES (?, ?::vector)";
-            jdbcTemplate.update(insertSql, embedding.getCourseId(), vectorString);
-        }
+        jdbcTemplate.update(UPSERT_SQL, upsertArgs(embedding));
     }
 
     /**
-     * Parse vector string format "[0.1, 0.2, 0.3, ...]" to float array
+     * Upsert many embeddings in one JDBC batch.
      */
-    private float[] parseVectorString(String vectorStr) {
-        if (vectorStr == null || vectorStr.trim().isEmpty()) {
-            return new float[0];
-        }
-        
-        // Remove brackets and split
-        String cleaned = vectorStr.replaceAll("[\\[\\]]", "").trim();
-        String[] parts = cleaned.split(",");
-        
-        float[] result = new float[parts.length];
-        for (int i = 0; i < parts.length; i++) {
-            result[i] = Float.parseFloat(parts[i].trim());
-        }
-        return result;
+    public void saveAll(List<CourseEmbedding> embeddings) {
+        List<Object[]> args = embeddings.stream()
+                .map(CourseEmbeddingRepositoryCustom::upsertArgs)
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
     }
 
     /**
-     * Convert float array to vector string format
+     * Rewrite the derived scoring columns of existing rows in one JDBC batch.
      */
-    private String arrayToVectorString(float[] array) {
-        if (array == null || array.length == 0) {
-            return "[]";
+    public void updateFeatures(List<CourseEmbedding> embeddings) {
+        List<Object[]> args = embeddings.stream()
+                .map(e -> new Object[] { e.getNameNorm(), e.getCategoryNorm(), e.getDescriptionNorm(),
+                        e.getRerankDoc(), e.getFeaturesVersion(), e.getCourseId() })
+                .toList();
+        jdbcTemplate.batchUpdate(UPDATE_FEATURES_SQL, args);
+    }
+
+    /**
+     * Content hashes currently stored for the given courses; courses without a row or
+     * without a hash are absent from the map.
+     */
+    public Map<UUID, String> findContentHashes(Collection<UUID> courseIds) {
+        Map<UUID, String> hashes = new HashMap<>();
+        if (courseIds.isEmpty()) {
+            return hashes;
         }
-        
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < array.length; i++) {
-            if (i > 0) sb.append(", ");
-            sb.append(array[i]);
+        String sql = "SELECT course_id, content_hash FROM course_embedding"
+                + " WHERE course_id = ANY(?) AND content_hash IS NOT NULL";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", courseIds.toArray()));
+            return ps;
+        }, (ResultSet rs) -> {
+            hashes.put((UUID) rs.getObject("course_id"), rs.getString("content_hash"));
+        });
+        return hashes;
+    }
+
+    /**
+     * Stream embeddings of {@code embeddingModel} changed after {@code since} (every row when
+     * null) to the consumer.
+     * Runs in a read-only transaction so the driver fetches rows in chunks instead of
+     * materialising the whole table.
+     *
+     * @return the latest updated_at seen, or {@code since} when nothing changed
+     */
+    @Transactional(readOnly = true)
+    public Instant forEachEmbedding(String embeddingModel, Instant since, BiConsumer<UUID, float[]> consumer) {
+        String sql = "SELECT course_id, vector_send(embedding) AS embedding, updated_at FROM course_embedding"
+                + " WHERE embedding IS NOT NULL AND embedding_model = ?" + (since == null ? "" : " AND updated_at > ?");
+        Instant[] latest = { since };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setString(1, embeddingModel);
+            if (since != null) {
+                ps.setTimestamp(2, Timestamp.from(since));
+            }
+            return ps;
+        }, (ResultSet rs) -> {
+            float[] vector = PgVectorCodec.decode(rs.getBytes("embedding"));
+            consumer.accept((UUID) rs.getObject("course_id"), vector);
+
+            Instant updatedAt = rs.getTimestamp("updated_at").toInstant();
+            if (latest[0] == null || updatedAt.isAfter(latest[0])) {
+                latest[0] = updatedAt;
+            }
+        });
+        return latest[0];
+    }
+
+    /**
+     * Stream the embeddings of {@code embeddingModel} for the given courses to the consumer.
+     */
+    public void forEachEmbeddingOf(String embeddingModel, Collection<UUID> courseIds, BiConsumer<UUID, float[]> consumer) {
+        if (courseIds.isEmpty()) {
+            return;
         }
-        sb.append("]");
-        return sb.toString();
+        String sql = "SELECT course_id, vector_send(embedding) AS embedding FROM course_embedding"
+                + " WHERE course_id = ANY(?) AND embedding IS NOT NULL AND embedding_model = ?";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", courseIds.toArray()));
+            ps.setString(2, embeddingModel);
+            return ps;
+        }, (ResultSet rs) -> {
+            consumer.accept((UUID) rs.getObject("course_id"), PgVectorCodec.decode(rs.getBytes("embedding")));
+        });
+    }
+
+    private static Object[] upsertArgs(CourseEmbedding e) {
+        return new Object[] { e.getCourseId(), e.getEmbedding(), e.getContentHash(), e.getEmbeddingModel(),
+                e.getEmbeddingDim(), e.getNameNorm(), e.getCategoryNorm(), e.getDescriptionNorm(),
+                e.getRerankDoc(), e.getFeaturesVersion() };
     }
 }
@@ -0,0 +1,52 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import hcmute.vina.vectorsearchservice.builder.CourseSqlBuilder;
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Full-text retrieval over {@code course_search_doc.search_tsv} (GIN index, accent-folded,
+ * name weighted above category/instructor above description). Runs next to the vector
+ * search so exact title or keyword matches are found even when their embedding is not
+ * among the nearest; the two rankings are fused by the search service.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CourseLexicalSearchRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Ids of courses matching any query term, best {@code ts_rank_cd} first. Courses
+     * matching more terms, or matching in the name, rank higher.
+     */
+    public List<UUID> findMatches(String keyword, CourseSearchRequest req, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String conditions = CourseSqlBuilder.buildConditions(req, params);
+        params.put("kw", keyword);
+        params.put("limit", limit);
+
+        // plainto_tsquery ANDs the terms; OR them instead and let the rank reward coverage
+        String sql = """
+            WITH q AS (
+                SELECT NULLIF(replace(plainto_tsquery('simple', f_unaccent(:kw))::text, '&', '|'), '')::tsquery AS query
+            )
+            SELECT d.course_id
+            FROM course_search_doc d, q
+            WHERE d.search_tsv @@ q.query
+              AND""" + conditions + """
+            ORDER BY ts_rank_cd(d.search_tsv, q.query) DESC
+            LIMIT :limit
+            """;
+
+        return namedParameterJdbcTemplate.queryForList(sql, params, UUID.class);
+    }
+}
@@ -0,0 +1,92 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import hcmute.vina.vectorsearchservice.builder.CourseSqlBuilder;
+import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import hcmute.vina.vectorsearchservice.mapper.CourseRowMapper;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Second search stage: loads course metadata for the ids returned by the vector index
+ * in one batched lookup from {@code course_search_doc}, one row per course. Request filters
+ * are applied again so that indexes which cannot filter natively stay correct.
+ *
+ * <p>Only the columns read by {@link CourseRowMapper} are selected, including the
+ * precomputed scoring features and reranker document, and the description is cut server
+ * side.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CourseMetadataRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Descriptions are HTML and can be large; search results only need the beginning
+    @Value("${search.hydrate.description-max-chars:1000}")
+    private int descriptionMaxChars;
+
+    /**
+     * @param vector         when not null, each row's distance to it is computed from the
+     *                       stored embedding (courses without an embedding get distance 1)
+     * @param embeddingModel model {@code vector} came from; rows embedded by another model
+     *                       get distance 1
+     */
+    public List<CourseDto> findCoursesByIds(List<UUID> ids, CourseSearchRequest req, float[] vector,
+            String embeddingModel) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Object> params = new HashMap<>();
+        String conditions = CourseSqlBuilder.buildConditions(req, params);
+        params.put("ids", ids.stream().map(UUID::toString).toArray(String[]::new));
+        params.put("descriptionMaxChars", descriptionMaxChars);
+        params.put("vector", vector);
+        params.put("embeddingModel", embeddingModel);
+
+        String sql = """
+            SELECT d.course_id AS id, d.image, d.name, LEFT(d.description, :descriptionMaxChars) AS description,
+                   d.slug, d.price, d.level, d.status, d.language,
+                   d.rating, d.total_rating, d.total_student, d.total_section, d.total_lesson,
+                   d.instructor_name, d.category_name,
+                   d.name_norm, d.category_norm, d.description_norm, d.rerank_doc
+                   """ + (vector == null ? "" : """
+                   , CASE WHEN d.embedding_model = :embeddingModel
+                          THEN COALESCE(d.embedding <=> (:vector)::real[]::vector, 1) ELSE 1 END AS distance
+                   """) + """
+            FROM course_search_doc d
+            WHERE d.course_id = ANY(CAST(:ids AS uuid[])) AND""" + conditions + """
+            """;
+
+        CourseRowMapper rowMapper = new CourseRowMapper();
+        if (vector == null) {
+            return namedParameterJdbcTemplate.query(sql, params, rowMapper);
+        }
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> {
+            CourseDto course = rowMapper.mapRow(rs, rowNum);
+            course.setDistance(rs.getDouble("distance"));
+            return course;
+        });
+    }
+
+    /**
+     * Number of searchable published courses matching the request filters.
+     */
+    public long countCourses(CourseSearchRequest req) {
+        Map<String, Object> params = new HashMap<>();
+        String sql = """
+            SELECT COUNT(*)
+            FROM course_search_doc d
+            """ + CourseSqlBuilder.buildWhere(req, params);
+        Long count = namedParameterJdbcTemplate.queryForObject(sql, params, Long.class);
+        return count == null ? 0 : count;
+    }
+}
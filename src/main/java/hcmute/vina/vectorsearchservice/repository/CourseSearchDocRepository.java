@@ -0,0 +1,53 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Maintains {@code course_search_doc}, the single-table projection every search stage reads.
+ * Rows are rebuilt by {@code refresh_course_search_doc()} (V13) from the catalog tables and
+ * {@code course_embedding}; courses that can no longer be searched lose their row.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CourseSearchDocRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void refresh(Collection<UUID> courseIds) {
+        if (courseIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT refresh_course_search_doc(?)");
+            ps.setArray(1, con.createArrayOf("uuid", courseIds.toArray()));
+            return ps;
+        }, rs -> null);
+    }
+
+    /**
+     * Refresh every row, picking up catalog changes that were not announced by an event
+     * (ratings, student counts). Only rows that differ are rewritten.
+     *
+     * @return false when another instance is already running the full refresh
+     */
+    public boolean refreshAll() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT refresh_all_course_search_doc()", Boolean.class));
+    }
+
+    /**
+     * Ids of the searchable courses embedded with the given model.
+     */
+    public Set<UUID> findCourseIds(String embeddingModel) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT course_id FROM course_search_doc WHERE embedding_model = ?", UUID.class, embeddingModel));
+    }
+}
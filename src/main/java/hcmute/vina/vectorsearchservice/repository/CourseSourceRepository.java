@@ -0,0 +1,107 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads the course fields that feed the embedding text from the catalog tables.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CourseSourceRepository {
+
+    private static final RowMapper<CourseTransfer> COURSE_TRANSFER_MAPPER = (rs, rowNum) -> CourseTransfer.builder()
+            .courseId(rs.getObject("id", UUID.class))
+            .courseName(rs.getString("name"))
+            .description(rs.getString("description"))
+            .instructorName(rs.getString("full_name"))
+            .categoryName(rs.getString("category_name"))
+            .price(rs.getBigDecimal("price"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * One keyset page of published courses without an embedding from {@code embeddingModel}
+     * (no row yet, or a vector from another model), in id order, starting after
+     * {@code afterId} (or from the beginning when null).
+     */
+    public List<CourseTransfer> findCoursesMissingEmbedding(String embeddingModel, UUID afterId, int limit) {
+        String sql = """
+            SELECT c.id, c.name, c.description, u.full_name, cate.name as category_name, c.price
+            FROM courses c
+            INNER JOIN course_instructor ci
+                    ON c.id = ci.course_id
+                    AND ci.is_owner = TRUE
+            INNER JOIN users u
+                    ON ci.user_id = u.id
+            INNER JOIN categories cate
+                    ON c.category_id = cate.id
+            WHERE c.status = 'PUBLISHED'
+              AND NOT EXISTS (SELECT 1 FROM course_embedding ce WHERE ce.course_id = c.id AND ce.embedding_model = ?)
+            """ + (afterId == null ? "" : " AND c.id > ?") + """
+             ORDER BY c.id
+             LIMIT ?
+            """;
+
+        return afterId == null
+                ? jdbcTemplate.query(sql, COURSE_TRANSFER_MAPPER, embeddingModel, limit)
+                : jdbcTemplate.query(sql, COURSE_TRANSFER_MAPPER, embeddingModel, afterId, limit);
+    }
+
+    /**
+     * One keyset page of published, embedded courses whose stored scoring features were
+     * derived by an older {@code CourseFeatures.VERSION} (or not at all), in id order.
+     */
+    public List<CourseTransfer> findCoursesWithStaleFeatures(int featuresVersion, UUID afterId, int limit) {
+        String sql = """
+            SELECT c.id, c.name, c.description, u.full_name, cate.name as category_name, c.price
+            FROM courses c
+            INNER JOIN course_embedding ce
+                    ON ce.course_id = c.id
+            INNER JOIN course_instructor ci
+                    ON c.id = ci.course_id
+                    AND ci.is_owner = TRUE
+            INNER JOIN users u
+                    ON ci.user_id = u.id
+            INNER JOIN categories cate
+                    ON c.category_id = cate.id
+            WHERE c.status = 'PUBLISHED'
+              AND ce.features_version IS DISTINCT FROM ?
+            """ + (afterId == null ? "" : " AND c.id > ?") + """
+             ORDER BY c.id
+             LIMIT ?
+            """;
+
+        return afterId == null
+                ? jdbcTemplate.query(sql, COURSE_TRANSFER_MAPPER, featuresVersion, limit)
+                : jdbcTemplate.query(sql, COURSE_TRANSFER_MAPPER, featuresVersion, afterId, limit);
+    }
+
+    /**
+     * Size of the set {@link #findCoursesMissingEmbedding} pages through.
+     */
+    public long countCoursesMissingEmbedding(String embeddingModel) {
+        Long count = jdbcTemplate.queryForObject("""
+            SELECT COUNT(*)
+            FROM courses c
+            INNER JOIN course_instructor ci
+                    ON c.id = ci.course_id
+                    AND ci.is_owner = TRUE
+            INNER JOIN users u
+                    ON ci.user_id = u.id
+            INNER JOIN categories cate
+                    ON c.category_id = cate.id
+            WHERE c.status = 'PUBLISHED'
+              AND NOT EXISTS (SELECT 1 FROM course_embedding ce WHERE ce.course_id = c.id AND ce.embedding_model = ?)
+            """, Long.class, embeddingModel);
+        return count == null ? 0 : count;
+    }
+}
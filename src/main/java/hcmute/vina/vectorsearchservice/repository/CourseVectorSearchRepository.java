@@ -0,0 +1,196 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import hcmute.vina.vectorsearchservice.builder.CourseSqlBuilder;
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import hcmute.vina.vectorsearchservice.service.index.VectorHit;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Nearest neighbour retrieval against the pgvector HNSW indexes of {@code course_search_doc}.
+ *
+ * <p>The top-K scan runs in an inner sub query ordered by the cosine operator ({@code <=>}),
+ * which is the operator class {@code idx_course_search_doc_hnsw} was built with, so Postgres
+ * walks the index instead of sorting the whole table. Filters are plain column predicates on
+ * the same table, and only ids and distances are returned. Only rows embedded by the model
+ * the query vector came from are compared.
+ *
+ * <p>With {@code search.ann.mode} {@code halfvec} or {@code binary} the scan walks a quantized
+ * index instead (half precision cosine, or Hamming distance on sign bits), which is 2x or 32x
+ * smaller and cheaper per comparison; {@code short} walks a half precision index over the
+ * first {@code short-dimension} dimensions (Matryoshka embeddings only). Flyway builds only
+ * the index of the configured mode. Quantized scans fetch {@code rescore-factor} times more
+ * rows, and those are re-ranked by exact cosine distance on the float32 embedding, so the
+ * returned distances are always exact. Scan limits are capped at pgvector's largest
+ * {@code hnsw.ef_search} (1000).
+ */
+@Repository
+@RequiredArgsConstructor
+public class CourseVectorSearchRepository {
+
+    public static final String MODE_HALFVEC = "halfvec";
+    public static final String MODE_BINARY = "binary";
+    public static final String MODE_SHORT = "short";
+
+    private static final String ITERATIVE_SCAN_OFF = "off";
+    // Largest hnsw.ef_search pgvector accepts; an HNSW scan returns at most ef_search rows
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Size of the HNSW dynamic candidate list, raised per request to at least the scan limit
+    @Value("${search.ann.ef-search:100}")
+    private int efSearch;
+
+    // pgvector >= 0.8: off | relaxed_order | strict_order
+    @Value("${search.ann.iterative-scan:relaxed_order}")
+    private String iterativeScan;
+
+    @Value("${search.ann.max-scan-tuples:20000}")
+    private int maxScanTuples;
+
+    // Without iterative scans, fetch this many times the limit before filtering
+    @Value("${search.ann.overfetch-factor:4}")
+    private int overfetchFactor;
+
+    // full | halfvec | binary | short
+    @Value("${search.ann.mode:full}")
+    private String mode;
+
+    // Dimensions of the short index, equal to the ann_short_dimension Flyway placeholder
+    @Value("${search.ann.short-dimension:256}")
+    private int shortDimension;
+
+    // Quantized modes: rows scanned per returned row, re-scored at full precision
+    @Value("${search.ann.rescore-factor:4}")
+    private int rescoreFactor;
+
+    /**
+     * Return up to {@code limit} course ids matching the request filters, closest first.
+     * Settings are applied with SET LOCAL semantics, hence the transaction.
+     */
+    @Transactional(readOnly = true)
+    public List<VectorHit> findNearest(float[] vector, String embeddingModel, CourseSearchRequest req, int limit) {
+        boolean iterative = !ITERATIVE_SCAN_OFF.equalsIgnoreCase(iterativeScan);
+        String scanOrder = scanOrder();
+        boolean quantized = scanOrder != null;
+        int annLimit = Math.min(MAX_EF_SEARCH, (iterative ? limit : limit * Math.max(1, overfetchFactor))
+                * (quantized ? Math.max(1, rescoreFactor) : 1));
+        applyScanSettings(annLimit, iterative);
+
+        Map<String, Object> params = new HashMap<>();
+        String conditions = CourseSqlBuilder.buildConditions(req, params)
+                + CourseSqlBuilder.embeddingModelCondition(embeddingModel, params);
+        params.put("vector", vector);
+        params.put("annLimit", annLimit);
+        params.put("limit", limit);
+
+        // With iterative scans the filter is evaluated inside the index scan, which keeps
+        // walking the graph until annLimit matching rows are found. Otherwise the scan
+        // over-fetches and the filter runs on its output, looked up by primary key. The exact
+        // distance is computed only for the rows the scan returns.
+        String sql = """
+            SELECT hit.course_id, hit.distance
+            FROM (
+                SELECT d.course_id, (d.embedding <=> (:vector)::real[]::vector) AS distance
+                FROM course_search_doc d
+            """ + (iterative ? " WHERE" + conditions : "") + """
+                ORDER BY """ + (quantized ? scanOrder : "d.embedding <=> (:vector)::real[]::vector") + """
+
+                LIMIT :annLimit
+            ) hit
+            """ + (iterative ? "" : " INNER JOIN course_search_doc d ON d.course_id = hit.course_id WHERE" + conditions) + """
+            ORDER BY hit.distance
+            LIMIT :limit
+            """;
+
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new VectorHit(
+                (UUID) rs.getObject("course_id"),
+                rs.getDouble("distance")));
+    }
+
+    /**
+     * Exact nearest courses among those matching the request filters, for filters narrow
+     * enough that computing every distance is cheaper than walking the index. The sort sits
+     * outside an optimisation fence (OFFSET 0) so Postgres cannot answer it with the HNSW
+     * index and filter afterwards.
+     */
+    public List<VectorHit> findNearestExact(float[] vector, String embeddingModel, CourseSearchRequest req, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        String conditions = CourseSqlBuilder.buildConditions(req, params)
+                + CourseSqlBuilder.embeddingModelCondition(embeddingModel, params);
+        params.put("vector", vector);
+        params.put("limit", limit);
+
+        String sql = """
+            SELECT s.course_id, s.distance
+            FROM (
+                SELECT d.course_id, (d.embedding <=> (:vector)::real[]::vector) AS distance
+                FROM course_search_doc d
+                WHERE""" + conditions + """
+                OFFSET 0
+            ) s
+            ORDER BY s.distance
+            LIMIT :limit
+            """;
+
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new VectorHit(
+                (UUID) rs.getObject("course_id"),
+                rs.getDouble("distance")));
+    }
+
+    /**
+     * Ids of the courses matching the filters, for exact scoring outside Postgres.
+     */
+    public List<UUID> findMatchingIds(String embeddingModel, CourseSearchRequest req) {
+        Map<String, Object> params = new HashMap<>();
+        String conditions = CourseSqlBuilder.buildConditions(req, params)
+                + CourseSqlBuilder.embeddingModelCondition(embeddingModel, params);
+
+        String sql = """
+            SELECT d.course_id
+            FROM course_search_doc d
+            WHERE""" + conditions;
+
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> (UUID) rs.getObject("course_id"));
+    }
+
+    // Index order expression of the quantized modes, null for full precision
+    private String scanOrder() {
+        if (MODE_HALFVEC.equalsIgnoreCase(mode)) {
+            return PgVectorCodec.HALFVEC_COLUMN + " <=> " + PgVectorCodec.HALFVEC_PARAM;
+        }
+        if (MODE_BINARY.equalsIgnoreCase(mode)) {
+            return PgVectorCodec.BIT_COLUMN + " <~> " + PgVectorCodec.BIT_PARAM;
+        }
+        if (MODE_SHORT.equalsIgnoreCase(mode)) {
+            return PgVectorCodec.shortColumn(shortDimension) + " <=> " + PgVectorCodec.shortParam(shortDimension);
+        }
+        return null;
+    }
+
+    private void applyScanSettings(int annLimit, boolean iterative) {
+        String efValue = String.valueOf(Math.min(MAX_EF_SEARCH, Math.max(efSearch, annLimit)));
+        if (!iterative) {
+            jdbcTemplate.query("SELECT set_config('hnsw.ef_search', ?, true)",
+                    rs -> null, efValue);
+            return;
+        }
+        jdbcTemplate.query("""
+                SELECT set_config('hnsw.ef_search', ?, true),
+                       set_config('hnsw.iterative_scan', ?, true),
+                       set_config('hnsw.max_scan_tuples', ?, true)
+                """, rs -> null, efValue, iterativeScan, String.valueOf(maxScanTuples));
+    }
+}
@@ -0,0 +1,8 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import hcmute.vina.vectorsearchservice.entity.IndexingCheckpoint;
+
+public interface IndexingCheckpointRepository extends JpaRepository<IndexingCheckpoint, String> {
+}
@@ -0,0 +1,56 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.time.Duration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Time-limited ownership of an indexing job, kept in the {@code lease_owner} and
+ * {@code lease_until} columns of its {@code indexing_checkpoint} row. Unlike a session
+ * advisory lock it holds no connection while the job runs; a lease that is not renewed
+ * (the owner died) can be taken by another instance once it expires.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexingLeaseRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Take the lease when it is free, expired or already ours, creating the job row if needed.
+     */
+    public boolean acquire(String jobName, String owner, Duration duration) {
+        return jdbcTemplate.update("""
+                INSERT INTO indexing_checkpoint AS c (job_name, status, lease_owner, lease_until, updated_at)
+                VALUES (?, 'IDLE', ?, now() + make_interval(secs => ?), now())
+                ON CONFLICT (job_name) DO UPDATE
+                SET lease_owner = EXCLUDED.lease_owner,
+                    lease_until = EXCLUDED.lease_until
+                WHERE c.lease_until IS NULL
+                   OR c.lease_until < now()
+                   OR c.lease_owner = EXCLUDED.lease_owner
+                """, jobName, owner, duration.toSeconds()) > 0;
+    }
+
+    /**
+     * @return false when the lease expired and another instance took it
+     */
+    public boolean renew(String jobName, String owner, Duration duration) {
+        return jdbcTemplate.update("""
+                UPDATE indexing_checkpoint
+                SET lease_until = now() + make_interval(secs => ?)
+                WHERE job_name = ? AND lease_owner = ?
+                """, duration.toSeconds(), jobName, owner) > 0;
+    }
+
+    public void release(String jobName, String owner) {
+        jdbcTemplate.update("""
+                UPDATE indexing_checkpoint
+                SET lease_owner = NULL, lease_until = NULL
+                WHERE job_name = ? AND lease_owner = ?
+                """, jobName, owner);
+    }
+}
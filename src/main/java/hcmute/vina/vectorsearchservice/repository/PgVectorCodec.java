@@ -0,0 +1,71 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.nio.ByteBuffer;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Conversions between {@code float[]} and the pgvector {@code vector} type without going
+ * through decimal text.
+ *
+ * <p>Writes bind the {@code float[]} itself: pgjdbc sends primitive arrays as binary
+ * {@code float4[]}, which the SQL casts with {@link #PARAM_CAST}. Reads select
+ * {@code vector_send(embedding)}, the type's binary output, and decode it with
+ * {@link #decode(byte[])}. The binary layout is pgvector's wire format: int16 dimension,
+ * int16 reserved, then one float4 per element, all in network (big-endian) order.
+ * Big-endian is deliberate even though little-endian was asked for: {@code vector_send} and
+ * {@code vector_recv} define this order, and the Redis embedding cache reuses the same layout.
+ */
+@UtilityClass
+public class PgVectorCodec {
+
+    /** Cast appended to a bound {@code float[]} parameter, e.g. {@code (:vector)::real[]::vector}. */
+    public static final String PARAM_CAST = "::real[]::vector";
+
+    /** Dimension of the stored embedding columns and their quantized indexes. */
+    public static final int STORED_DIMENSION = 1536;
+
+    /**
+     * Expressions of the quantized HNSW indexes on {@code course_search_doc}, each paired with the matching query
+     * expression for a bound {@code float[]} parameter named {@code vector}. The column side
+     * must stay textually identical to the index definition for Postgres to use the index.
+     */
+    public static final String HALFVEC_COLUMN = "(d.embedding::halfvec(" + STORED_DIMENSION + "))";
+    public static final String HALFVEC_PARAM = "(:vector)::real[]::halfvec(" + STORED_DIMENSION + ")";
+    public static final String BIT_COLUMN = "(binary_quantize(d.embedding)::bit(" + STORED_DIMENSION + "))";
+    public static final String BIT_PARAM = "binary_quantize((:vector)::real[]::vector)::bit(" + STORED_DIMENSION + ")";
+
+    /**
+     * Leading-dimensions expression of {@code idx_course_search_doc_hnsw_short}; {@code dimension}
+     * must equal the {@code ann_short_dimension} placeholder the index was built with.
+     */
+    public static String shortColumn(int dimension) {
+        return "(subvector(d.embedding, 1, " + dimension + ")::halfvec(" + dimension + "))";
+    }
+
+    public static String shortParam(int dimension) {
+        return "subvector((:vector)::real[]::vector, 1, " + dimension + ")::halfvec(" + dimension + ")";
+    }
+
+    private static final int HEADER_BYTES = 4;
+
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + vector.length * Float.BYTES);
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int dimension = buffer.getShort() & 0xFFFF;
+        buffer.getShort(); // reserved
+        float[] vector = new float[dimension];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,66 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the queries of one search stage within the stage's time budget.
+ *
+ * <p>The stage gets a read-only transaction whose {@code statement_timeout} is the budget
+ * left, so Postgres cancels a query the caller has stopped waiting for and its connection
+ * goes back to the pool. A semaphore ({@code search.db.max-concurrent-stages}) bounds how
+ * many stages hold a connection at once; a stage that gets no permit within its budget
+ * fails like a late one instead of queueing on the pool's connection timeout.
+ */
+@Component
+public class StatementBudget {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore permits;
+
+    public StatementBudget(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${search.db.max-concurrent-stages:6}") int maxConcurrentStages) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.permits = new Semaphore(Math.max(1, maxConcurrentStages));
+    }
+
+    /**
+     * @throws QueryTimeoutException when no connection slot frees up within the budget
+     */
+    public <T> T call(Duration budget, Supplier<T> stage) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        try {
+            if (!permits.tryAcquire(budget.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new QueryTimeoutException("No database slot for search stage within " + budget);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted waiting for a database slot");
+        }
+        try {
+            // statement_timeout 0 would disable the limit
+            long remainingMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            return readOnlyTransaction.execute(status -> {
+                jdbcTemplate.query("SELECT set_config('statement_timeout', ?, true)",
+                        rs -> null, String.valueOf(remainingMillis));
+                return stage.get();
+            });
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package hcmute.vina.vectorsearchservice.service;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import hcmute.vina.vectorsearchservice.service.cache.EmbeddingCache;
+import hcmute.vina.vectorsearchservice.util.SingleFlight;
+
+/**
+ * Query-side caching shared by the embedding providers: texts are normalised (trimmed,
+ * lower-cased), looked up in {@link EmbeddingCache} under the provider's model name, and
+ * concurrent misses for the same text share one {@link #embedQuery(String)} call.
+ */
+public abstract class AbstractEmbeddingService implements EmbeddingService {
+
+    private final EmbeddingCache embeddingCache;
+
+    private final SingleFlight<String, float[]> inFlightEmbeddings = new SingleFlight<>();
+
+    protected AbstractEmbeddingService(EmbeddingCache embeddingCache) {
+        this.embeddingCache = embeddingCache;
+    }
+
+    /**
+     * Embed one normalised text, bypassing the cache.
+     */
+    protected abstract float[] embedQuery(String normalized);
+
+    @Override
+    public float[] createEmbedding(String text) {
+        String normalized = normalize(text);
+        String cacheKey = getModelName() + "|" + normalized;
+        float[] cached = embeddingCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        return inFlightEmbeddings.execute(cacheKey, () -> {
+            float[] loaded = embeddingCache.get(cacheKey);
+            if (loaded != null) {
+                return loaded;
+            }
+            float[] vector = embedQuery(normalized);
+            embeddingCache.put(cacheKey, vector);
+            return vector;
+        });
+    }
+
+    @Override
+    public String cleanHtml(String htmlContent) {
+        if (htmlContent == null || htmlContent.isEmpty()) {
+            return "";
+        }
+        
+        // 1. Phân tích chuỗi HTML
+        Document document = Jsoup.parse(htmlContent);
+        
+        // 2. Trích xuất văn bản thuần túy
+        return document.text();
+    }
+
+    protected static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,15 @@
+package hcmute.vina.vectorsearchservice.service;
+
+import java.util.List;
+
+import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
+
+public interface CourseIndexingService {
+
+	// Embed and upsert the given courses, batching the embedding requests
+	void indexCourses(List<CourseTransfer> courses);
+
+	// Recompute the stored scoring features of already embedded courses, without re-embedding
+	void refreshFeatures(List<CourseTransfer> courses);
+
+}
@@ -0,0 +1,159 @@
+package hcmute.vina.vectorsearchservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import hcmute.vina.vectorsearchservice.dto.CourseFeatures;
+import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
+import hcmute.vina.vectorsearchservice.entity.CourseEmbedding;
+import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepositoryCustom;
+import hcmute.vina.vectorsearchservice.repository.CourseSearchDocRepository;
+import hcmute.vina.vectorsearchservice.service.index.VectorIndex;
+import hcmute.vina.vectorsearchservice.util.Hashing;
+import hcmute.vina.vectorsearchservice.util.RerankText;
+import hcmute.vina.vectorsearchservice.util.TextNormalizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk embedding pipeline: multi-input embedding requests per batch and one JDBC batch
+ * upsert per embedding batch. Callers decide how many batches run concurrently.
+ *
+ * <p>Each row stores a hash of the model, dimension and exact embedded text; courses whose
+ * hash is unchanged (redelivered events, edits to fields that are not embedded) are
+ * skipped without calling the embedder or writing.
+ *
+ * <p>The normalized name, category and description used by lexical scoring, and the
+ * reranker document, are computed here too and stored with the embedding, so search does
+ * no HTML parsing or text processing per candidate. Every batch, changed or not, then
+ * refreshes its rows of the {@code course_search_doc} projection, since events also carry
+ * changes to fields that are not embedded (price, status, category).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CourseIndexingServiceImpl implements CourseIndexingService {
+
+    // Keep each input well under the embedding model's 8191 token limit
+    private static final int MAX_TEXT_CHARS = 8000;
+
+    // Description prefix kept for lexical scoring
+    private static final int MAX_DESCRIPTION_NORM_CHARS = 2000;
+
+    private final EmbeddingService embeddingService;
+    private final CourseEmbeddingRepositoryCustom courseEmbeddingRepository;
+    private final VectorIndex vectorIndex;
+    private final CourseSearchDocRepository courseSearchDocRepository;
+
+    @Value("${search.indexing.batch-size:64}")
+    private int batchSize;
+
+    @Override
+    public void indexCourses(List<CourseTransfer> courses) {
+        for (List<CourseTransfer> batch : partition(courses)) {
+            indexBatch(batch);
+        }
+    }
+
+    @Override
+    public void refreshFeatures(List<CourseTransfer> courses) {
+        for (List<CourseTransfer> batch : partition(courses)) {
+            List<CourseEmbedding> features = new ArrayList<>(batch.size());
+            for (CourseTransfer course : batch) {
+                CourseEmbedding row = CourseEmbedding.builder().courseId(course.getCourseId()).build();
+                applyFeatures(row, course, embeddingService.cleanHtml(course.getDescription()));
+                features.add(row);
+            }
+            courseEmbeddingRepository.updateFeatures(features);
+            courseSearchDocRepository.refresh(batch.stream().map(CourseTransfer::getCourseId).toList());
+        }
+    }
+
+    private void indexBatch(List<CourseTransfer> batch) {
+        embedChanged(batch);
+        courseSearchDocRepository.refresh(batch.stream().map(CourseTransfer::getCourseId).toList());
+    }
+
+    private void embedChanged(List<CourseTransfer> batch) {
+        String model = embeddingService.getModelName();
+        int dimension = embeddingService.getDimension();
+        Map<UUID, String> storedHashes = courseEmbeddingRepository.findContentHashes(
+                batch.stream().map(CourseTransfer::getCourseId).toList());
+
+        // Only courses whose embedded text (or model) changed go to the embedder
+        List<CourseEmbedding> changed = new ArrayList<>(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        for (CourseTransfer course : batch) {
+            String cleanDescription = embeddingService.cleanHtml(course.getDescription());
+            String text = buildEmbeddingText(course, cleanDescription);
+            String hash = Hashing.sha256Hex(model + "\n" + dimension + "\n" + text);
+            if (hash.equals(storedHashes.get(course.getCourseId()))) {
+                continue;
+            }
+            CourseEmbedding row = CourseEmbedding.builder()
+                    .courseId(course.getCourseId())
+                    .contentHash(hash)
+                    .embeddingModel(model)
+                    .embeddingDim(dimension)
+                    .build();
+            applyFeatures(row, course, cleanDescription);
+            changed.add(row);
+            texts.add(text);
+        }
+        if (changed.size() < batch.size()) {
+            log.debug("Skipped {} of {} courses with unchanged embedding text", batch.size() - changed.size(), batch.size());
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<float[]> vectors = embeddingService.createEmbeddings(texts);
+        for (int i = 0; i < changed.size(); i++) {
+            changed.get(i).setEmbedding(vectors.get(i));
+        }
+        courseEmbeddingRepository.saveAll(changed);
+        changed.forEach(e -> vectorIndex.upsert(e.getCourseId(), e.getEmbedding()));
+    }
+
+    // Lexical scoring features and reranker document, both covered by CourseFeatures.VERSION
+    private static void applyFeatures(CourseEmbedding row, CourseTransfer course, String cleanDescription) {
+        row.setNameNorm(TextNormalizer.normalize(course.getCourseName()));
+        row.setCategoryNorm(TextNormalizer.normalize(course.getCategoryName()));
+        row.setDescriptionNorm(truncate(TextNormalizer.normalize(cleanDescription), MAX_DESCRIPTION_NORM_CHARS));
+        row.setRerankDoc(RerankText.build(course.getCourseName(), cleanDescription, course.getInstructorName(),
+                course.getCategoryName(), course.getPrice()));
+        row.setFeaturesVersion(CourseFeatures.VERSION);
+    }
+
+    private String buildEmbeddingText(CourseTransfer course, String cleanDescription) {
+        String text = String.join(" | ",
+                nullToEmpty(course.getCourseName()),
+                cleanDescription,
+                nullToEmpty(course.getInstructorName()),
+                nullToEmpty(course.getCategoryName()),
+                course.getPrice() == null ? "" : course.getPrice().toPlainString());
+        return truncate(text, MAX_TEXT_CHARS);
+    }
+
+    private List<List<CourseTransfer>> partition(List<CourseTransfer> courses) {
+        int size = Math.max(1, batchSize);
+        List<List<CourseTransfer>> batches = new ArrayList<>();
+        for (int i = 0; i < courses.size(); i += size) {
+            batches.add(courses.subList(i, Math.min(courses.size(), i + size)));
+        }
+        return batches;
+    }
+
+    private static String truncate(String value, int maxChars) {
+        return value.length() > maxChars ? value.substring(0, maxChars) : value;
+    }
+
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
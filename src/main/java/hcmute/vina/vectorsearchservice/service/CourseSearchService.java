@@ -1,10 +1,11 @@
 package hcmute.vina.vectorsearchservice.service;
 
-import org.springframework.data.domain.Page;
-
-import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import hcmute.vina.vectorsearchservice.dto.CourseSearchResult;
 import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
 
 public interface CourseSearchService {
-	Page<CourseDto> search(CourseSearchRequest req, int page, int size);
+	/**
+	 * @param cursor from an earlier result for the same request, or null to rank afresh
+	 */
+	CourseSearchResult search(CourseSearchRequest req, int page, int size, String cursor);
 }
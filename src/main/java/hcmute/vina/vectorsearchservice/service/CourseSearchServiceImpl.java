@@ -1,103 +1,272 @@
 package hcmute.vina.vectorsearchservice.service;
 
-import java.util.Collections;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import hcmute.vina.vectorsearchservice.builder.CourseSqlBuilder;
 import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import hcmute.vina.vectorsearchservice.dto.CourseFeatures;
+import hcmute.vina.vectorsearchservice.dto.CourseSearchResult;
+import hcmute.vina.vectorsearchservice.dto.SearchSession;
 import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
-import hcmute.vina.vectorsearchservice.mapper.CourseRowMapper;
-import hcmute.vina.vectorsearchservice.service.rerank.BgeRerankerService;
-import hcmute.vina.vectorsearchservice.service.rerank.JinaRerankerService;
+import hcmute.vina.vectorsearchservice.repository.CourseLexicalSearchRepository;
+import hcmute.vina.vectorsearchservice.repository.CourseMetadataRepository;
+import hcmute.vina.vectorsearchservice.repository.StatementBudget;
+import hcmute.vina.vectorsearchservice.service.cache.SearchResultCache;
+import hcmute.vina.vectorsearchservice.service.cache.SearchSessionStore;
+import hcmute.vina.vectorsearchservice.service.index.VectorHit;
+import hcmute.vina.vectorsearchservice.service.index.VectorSearchPlanner;
+import hcmute.vina.vectorsearchservice.service.rerank.RerankDocument;
+import hcmute.vina.vectorsearchservice.service.rerank.RerankScheduler;
 import hcmute.vina.vectorsearchservice.service.rerank.ScoredDocument;
+import hcmute.vina.vectorsearchservice.util.RankFusion;
+import hcmute.vina.vectorsearchservice.util.RerankText;
+import hcmute.vina.vectorsearchservice.util.TextNormalizer;
+import hcmute.vina.vectorsearchservice.util.TokenDictionary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CourseSearchServiceImpl implements CourseSearchService{
 
-    private final JdbcTemplate jdbcTemplate;
     private final EmbeddingService embeddingService;
-    private final BgeRerankerService bge;
-    private final JinaRerankerService rerankerService; // Jina API reranker (multilingual)
+    private final RerankScheduler rerankScheduler; // Jina API or local BGE, see search.rerank.provider
+    private final VectorSearchPlanner vectorSearchPlanner;
+    private final CourseMetadataRepository courseMetadataRepository;
+    private final CourseLexicalSearchRepository courseLexicalSearchRepository;
+    private final StatementBudget statementBudget;
+    private final SearchSessionStore searchSessionStore;
+    private final SearchResultCache searchResultCache;
+    private final MeterRegistry meterRegistry;
+
+    // Latency per pipeline stage, tagged stage=embedding|vector|retrieval|rerank
+    private static final String STAGE_METRIC = "search.stage";
+
+    // Interned name tokens, so token overlap is computed on sorted int arrays
+    private final TokenDictionary tokenDictionary = new TokenDictionary();
+
+    // Token ids of a course name, kept with the name they were computed from
+    private record NameTokens(String name, int[] tokens) {
+    }
+
+    // Name token ids by course, so each name is interned once rather than on every hydration
+    private final Cache<UUID, NameTokens> nameTokenCache = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    // Search stages mostly wait on I/O, so each gets its own virtual thread
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     @Value("${search.rerank.enabled:true}")
     private boolean rerankEnabledDefault;
 
+    // Keep candidate pool modest to avoid heavy compute
+    @Value("${search.ann.candidate-limit:100}")
+    private int candidateLimit;
+
+    // Full-text matches fused with the vector candidates
+    @Value("${search.lexical.candidate-limit:50}")
+    private int lexicalCandidateLimit;
+
+    // Reciprocal rank fusion constant; larger values flatten the advantage of top ranks
+    @Value("${search.lexical.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${search.timeout.embedding:2s}")
+    private Duration embeddingTimeout;
+
+    @Value("${search.timeout.ann:1s}")
+    private Duration annTimeout;
+
+    @Value("${search.timeout.lexical:300ms}")
+    private Duration lexicalTimeout;
+
+    @Value("${search.timeout.count:300ms}")
+    private Duration countTimeout;
+
+    /**
+     * The first request for a ranking runs the whole pipeline and, when there is more than one
+     * page, stores the ranked ids under a new cursor. Requests carrying that cursor (for the
+     * same request and rerank setting) are served from it with one metadata lookup for the
+     * page, so every page comes from the same, reranked, ordering. Identical requests
+     * within the result cache TTL reuse the ranking and its cursor without running the
+     * pipeline.
+     */
     @Override
-    public Page<CourseDto> search(CourseSearchRequest req, int page, int size) {
-        long current = System.currentTimeMillis();
+    public CourseSearchResult search(CourseSearchRequest req, int page, int size, String cursor) {
+        // Use request parameter if provided, otherwise use config default
+        boolean useSemanticRerank = req.getSemantic() != null ? req.getSemantic() : rerankEnabledDefault;
+        String requestKey = CourseSqlBuilder.canonicalKey(req) + "|semantic=" + useSemanticRerank;
+
+        SearchSession session = cursor == null || cursor.isBlank() ? null : searchSessionStore.get(cursor);
+        if (session != null && session.getRequestKey().equals(requestKey)) {
+            return new CourseSearchResult(pageFromSession(session, req, page, size), cursor);
+        }
+        SearchResultCache.CachedSearch cached = searchResultCache.get(requestKey);
+        if (cached != null) {
+            String nextCursor = cached.cursor();
+            if (nextCursor == null) {
+                nextCursor = saveSession(requestKey, cached.ranked(), size);
+                if (nextCursor != null) {
+                    searchResultCache.attachCursor(requestKey, cached.ranked(), nextCursor);
+                }
+            }
+            return new CourseSearchResult(paginate(cached.ranked(), page, size), nextCursor);
+        }
+        long computedAt = searchResultCache.startComputation();
         
         // 1. Retrieve candidates using original query (no expansion)
-        List<CourseDto> candidates = retrieveCandidates(req, req.getKeyword());
-        System.err.println("vector search time " + (System.currentTimeMillis() - current));
+        String keyword = req.getKeyword() == null ? "" : req.getKeyword().trim().toLowerCase();
+        List<CourseDto> candidates = stageTimer("retrieval").record(() -> retrieveCandidates(req, keyword));
         
         if (candidates.isEmpty()) {
-            return Page.empty(PageRequest.of(page, size));
+            return new CourseSearchResult(Page.empty(PageRequest.of(page, size)), null);
         }
  
         // 2. Hybrid search: combine vector + BM25 + rerank
-        // Use request parameter if provided, otherwise use config default
-        boolean useSemanticRerank = req.getSemantic() != null ? req.getSemantic() : rerankEnabledDefault;
-        boolean useRerank = useSemanticRerank && rerankerService != null && rerankerService.isAvailable() && page == 0;
-        List<CourseDto> rankedCandidates = useRerank
+        boolean useRerank = useSemanticRerank && rerankScheduler.isAvailable();
+        Ranking ranking = useRerank
             ? hybridSearchWithRerank(candidates, req.getKeyword())
-            : hybridSearch(candidates, req.getKeyword());
+            : new Ranking(hybridSearch(candidates, req.getKeyword()), true);
+        List<CourseDto> rankedCandidates = ranking.courses();
+
+        // 3. Keep the ranking for later pages and identical requests, then paginate
+        String nextCursor = saveSession(requestKey, rankedCandidates, size);
+        // A ranking that fell back from a late rerank is not cached, so the next identical
+        // request can use the rerank result that arrives meanwhile
+        if (ranking.complete()) {
+            // Scoring inputs are not needed once ranked; don't keep them in the cache
+            for (CourseDto course : rankedCandidates) {
+                course.setFeatures(null);
+                course.setRerankText(null);
+            }
+            searchResultCache.put(requestKey, computedAt, rankedCandidates, nextCursor);
+        }
+        return new CourseSearchResult(paginate(rankedCandidates, page, size), nextCursor);
+    }
+
+    /**
+     * Stages that only depend on the request run concurrently on virtual threads: query
+     * embedding, the full-text lookup and, for filtered searches, the count of matching
+     * courses. The nearest neighbour search follows the embedding, using the count to choose
+     * between the index and an exact scan. Each stage has its own timeout, which also bounds
+     * its queries on the server (see {@link StatementBudget}); a failed vector stage leaves
+     * the lexical candidates, a failed lexical or count stage is ignored. Stages still
+     * pending when the candidates are assembled are cancelled.
+     */
+    private List<CourseDto> retrieveCandidates(CourseSearchRequest req, String keyword) {
+        CompletableFuture<float[]> embedding = CompletableFuture
+                .supplyAsync(() -> stageTimer("embedding").record(() -> embeddingService.createEmbedding(keyword)),
+                        searchExecutor)
+                .orTimeout(embeddingTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        CompletableFuture<Long> matchingCourses = CourseSqlBuilder.hasFilters(req)
+                ? CompletableFuture
+                        .supplyAsync(() -> statementBudget.call(countTimeout,
+                                () -> courseMetadataRepository.countCourses(req)), searchExecutor)
+                        .completeOnTimeout(-1L, countTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .exceptionally(ex -> -1L)
+                : CompletableFuture.completedFuture(-1L);
+        // The count usually arrives before the embedding; the planner uses it to pick
+        // between the ANN index and an exact scan of the matching courses
+        CompletableFuture<List<VectorHit>> vectorHits = embedding
+                .thenCompose(vector -> matchingCourses
+                        .thenApplyAsync(count -> stageTimer("vector").record(() -> statementBudget.call(annTimeout,
+                                () -> vectorSearchPlanner.search(vector, candidateLimit, req, count))), searchExecutor)
+                        .orTimeout(annTimeout.toMillis(), TimeUnit.MILLISECONDS))
+                .exceptionally(ex -> {
+                    log.warn("Vector retrieval failed, using lexical candidates only: {}", ex.toString());
+                    return List.of();
+                });
+        CompletableFuture<List<UUID>> lexicalHits = keyword.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : CompletableFuture
+                        .supplyAsync(() -> statementBudget.call(lexicalTimeout,
+                                () -> courseLexicalSearchRepository.findMatches(keyword, req, lexicalCandidateLimit)),
+                                searchExecutor)
+                        .completeOnTimeout(List.of(), lexicalTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                        .exceptionally(ex -> List.of());
+
+        try {
+            // Nothing matches the filters: answer without waiting for the embedding
+            if (matchingCourses.join() == 0) {
+                return List.of();
+            }
 
-        // 3. Paginate results
-        return paginate(rankedCandidates, page, size);
+            List<VectorHit> hits = vectorHits.join();
+            float[] vector = embedding.isDone() && !embedding.isCompletedExceptionally() ? embedding.join() : null;
+            return hydrate(hits, lexicalHits.join(), vector, req);
+        } finally {
+            // A stage that has not started yet is skipped; a running query ends at its statement_timeout
+            embedding.cancel(false);
+            vectorHits.cancel(false);
+            lexicalHits.cancel(false);
+        }
     }
 
-    private List<CourseDto> retrieveCandidates(CourseSearchRequest req, String expandedQuery) {
-        Map<String, Object> params = new HashMap<>();
-        String whereClause = CourseSqlBuilder.buildWhere(req, params);
-
-        String keyword = expandedQuery.trim().toLowerCase();
-        if (keyword == null || keyword.isEmpty()) {
-            keyword = "";
-        }
-        long current = System.currentTimeMillis();
-        float[] embedding = embeddingService.toFloatArray(
-                embeddingService.createEmbedding(keyword)
-        );
-//        float[] embedding = 
-//                embeddingService.createEmbedding3(keyword.trim());
-        System.err.println("embedding time "+(System.currentTimeMillis()-current));
-        params.put("vector", embedding);
-        // Keep candidate pool modest to avoid heavy compute
-        int candidateLimit = 100;
-        params.put("limit", candidateLimit);
-        params.put("offset", 0);
-        System.err.println(whereClause);
-        
-        String sql = """
-            SELECT c.*, ce.embedding, cate.slug as category_slug, u.full_name as instructor_name, cate.name as category_name,
-                   (ce.embedding <-> (:vector)::vector) AS distance
-            FROM courses c
-            INNER JOIN course_embedding ce ON c.id = ce.course_id
-            INNER JOIN categories cate ON c.category_id = cate.id
-            INNER JOIN course_instructor ci
-        			ON c.id = ci.course_id
-            INNER JOIN users u
-        			ON ci.user_id = u.id
-        	 
-            """ + whereClause + """
-             ORDER BY ce.embedding <-> (:vector)::vector
-            LIMIT :limit OFFSET :offset
-            """;
-
-        return new NamedParameterJdbcTemplate(jdbcTemplate)
-                .query(sql, params, new CourseRowMapper());
+    /**
+     * Load metadata for the index hits and lexical hits in one query, ordered by reciprocal
+     * rank fusion of the two rankings, so strong full-text matches reach the rerank window
+     * even when their embedding ranks low. Lexical-only hits get their exact distance to the
+     * query from the database.
+     */
+    private List<CourseDto> hydrate(List<VectorHit> hits, List<UUID> lexicalIds, float[] vector, CourseSearchRequest req) {
+        Map<UUID, Double> hitDistances = new LinkedHashMap<>();
+        for (VectorHit hit : hits) {
+            if (hitDistances.size() == candidateLimit) {
+                break;
+            }
+            hitDistances.putIfAbsent(hit.getCourseId(), hit.getDistance());
+        }
+        List<UUID> ids = lexicalIds.isEmpty()
+                ? new ArrayList<>(hitDistances.keySet())
+                : RankFusion.reciprocalRank(List.of(new ArrayList<>(hitDistances.keySet()), lexicalIds), rrfK);
+        boolean lexicalOnly = ids.size() > hitDistances.size();
+
+        float[] distanceTo = lexicalOnly ? vector : null;
+        Map<UUID, CourseDto> byId = new HashMap<>();
+        for (CourseDto course : courseMetadataRepository.findCoursesByIds(ids, req, distanceTo, embeddingService.getModelName())) {
+            byId.putIfAbsent(course.getId(), course);
+        }
+
+        List<CourseDto> candidates = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            CourseDto course = byId.get(id);
+            if (course == null) {
+                continue;
+            }
+            Double distance = hitDistances.get(id);
+            if (distance != null) {
+                course.setDistance(distance);
+            } else if (distanceTo == null) {
+                course.setDistance(1.0);
+            }
+            candidates.add(course);
+        }
+        return candidates;
     }
 
     private List<CourseDto> hybridSearch(List<CourseDto> candidates, String originalQuery) {
@@ -110,7 +279,7 @@ public class CourseSearchServiceImpl implements CourseSearchService{
             return candidates;
         }
         
-        String kw = normalizeText(originalQuery);
+        QueryTerms kw = queryTerms(originalQuery);
         
         for (CourseDto course : candidates) {
             // (1) Vector Semantic Similarity
@@ -132,23 +301,34 @@ public class CourseSearchServiceImpl implements CourseSearchService{
         return candidates;
     }
 
-    private List<CourseDto> hybridSearchWithRerank(List<CourseDto> candidates, String originalQuery) {
+    // complete is false when the rerank stage was skipped because it failed or was late
+    private record Ranking(List<CourseDto> courses, boolean complete) {
+    }
+
+    private Ranking hybridSearchWithRerank(List<CourseDto> candidates, String originalQuery) {
 
         if (originalQuery == null || originalQuery.trim().isEmpty()) {
-            return hybridSearch(candidates, originalQuery);
+            return new Ranking(hybridSearch(candidates, originalQuery), true);
         }
 
         int topRerank = Math.min(candidates.size(), 20);
 
        
-        List<String> documents = candidates.subList(0, topRerank).stream()
-                .map(this::buildCourseText)
+        List<RerankDocument> documents = candidates.subList(0, topRerank).stream()
+                .map(course -> new RerankDocument(course.getId(), buildCourseText(course)))
                 .toList();
-        long current = System.currentTimeMillis();
-        List<ScoredDocument> scored = rerankerService.batchRerank(originalQuery.trim(), documents);
-        System.err.println("rerank time "+(System.currentTimeMillis()-current));
+        long rerankStart = System.nanoTime();
+        CompletableFuture<List<ScoredDocument>> pendingRerank = rerankScheduler.rerankAsync(originalQuery.trim(), documents);
+
+        // Rank without the reranker while it runs; used if it misses its deadline or fails.
+        // Sorted on a copy so candidates keep the index order the rerank scores refer to.
+        List<CourseDto> fallback = hybridSearch(new ArrayList<>(candidates), originalQuery);
+
+        List<ScoredDocument> scored = pendingRerank.join();
+        // Time the search waited for scores, bounded by the rerank deadline
+        stageTimer("rerank").record(System.nanoTime() - rerankStart, TimeUnit.NANOSECONDS);
         if (scored == null || scored.isEmpty()) {
-            return hybridSearch(candidates, originalQuery);
+            return new Ranking(fallback, false);
         }
 
         Map<Integer, Float> rerankScoreMap = scored.stream()
@@ -157,7 +337,7 @@ public class CourseSearchServiceImpl implements CourseSearchService{
                         ScoredDocument::getScore
                 ));
 
-        String kw = normalizeText(originalQuery);
+        QueryTerms kw = queryTerms(originalQuery);
 
         
         List<CourseDto> top = candidates.subList(0, topRerank);
@@ -204,15 +384,55 @@ public class CourseSearchServiceImpl implements CourseSearchService{
         result.addAll(top);
         result.addAll(rest);
 
-        return result;
+        return new Ranking(result, true);
     }
 
 
+    private Timer stageTimer(String stage) {
+        return meterRegistry.timer(STAGE_METRIC, "stage", stage);
+    }
+
+    // Normalized query and its token ids, computed once per ranking pass
+    private record QueryTerms(String text, int[] tokens) {
+    }
+
+    private QueryTerms queryTerms(String query) {
+        String normalized = TextNormalizer.normalize(query);
+        return new QueryTerms(normalized, tokenDictionary.lookupAll(normalized));
+    }
+
+    // Stored features when the course has them, else computed once and kept on the candidate
+    private CourseFeatures features(CourseDto course) {
+        CourseFeatures features = course.getFeatures();
+        if (features == null) {
+            features = CourseFeatures.of(course);
+            course.setFeatures(features);
+        }
+        if (features.getNameTokens() == null) {
+            features.setNameTokens(nameTokens(course.getId(), features.getName()));
+        }
+        return features;
+    }
+
+    private int[] nameTokens(UUID courseId, String name) {
+        NameTokens cached = courseId == null ? null : nameTokenCache.getIfPresent(courseId);
+        if (cached != null && cached.name().equals(name)) {
+            return cached.tokens();
+        }
+        int[] tokens = tokenDictionary.internSet(name);
+        if (courseId != null) {
+            nameTokenCache.put(courseId, new NameTokens(name, tokens));
+        }
+        return tokens;
+    }
+
     // BM25-like lexical scoring for hybrid search
-    private float calculateBM25Score(String queryNorm, CourseDto course) {
-        String title = course.getName() == null ? "" : normalizeText(course.getName());
-        String category = course.getCategoryName() == null ? "" : normalizeText(course.getCategoryName());
-        String desc = course.getDescription() == null ? "" : normalizeText(course.getDescription());
+    private float calculateBM25Score(QueryTerms query, CourseDto course) {
+        CourseFeatures features = features(course);
+        String queryNorm = query.text();
+        String title = features.getName() == null ? "" : features.getName();
+        String category = features.getCategory() == null ? "" : features.getCategory();
+        String desc = features.getDescription() == null ? "" : features.getDescription();
         
         float score = 0.0f;
         
@@ -241,58 +461,30 @@ public class CourseSearchServiceImpl implements CourseSearchService{
         }
         
         // Token overlap boost
-        score += computeTokenOverlapBoost(queryNorm, title) * 0.5f;
+        score += computeTokenOverlapBoost(query.tokens(), features.getNameTokens()) * 0.5f;
         
         return Math.min(1.0f, score);
     }
 
-    // Normalize text: lower-case and collapse spaces only (preserve Vietnamese diacritics)
-    private String normalizeText(String s) {
-        if (s == null) return "";
-        return s.toLowerCase().trim().replaceAll("\\s+", " ");
-    }
-
     // Compute lexical coverage: proportion of query tokens found in title tokens
-    private float computeTokenOverlapBoost(String queryNorm, String titleNorm) {
-        if (queryNorm.isEmpty() || titleNorm.isEmpty()) return 0f;
-        String[] qTokens = queryNorm.split(" ");
-        String[] tTokens = titleNorm.split(" ");
-        java.util.Set<String> tSet = new java.util.HashSet<>();
-        for (String t : tTokens) {
-            if (!t.isBlank()) tSet.add(t);
-        }
-        int hits = 0, total = 0;
-        for (String q : qTokens) {
-            if (q.isBlank()) continue;
-            total++;
-            if (tSet.contains(q)) hits++;
-        }
-        if (total == 0) return 0f;
-        float coverage = (float) hits / (float) total; // 0..1
+    private float computeTokenOverlapBoost(int[] queryTokens, int[] titleTokens) {
+        if (queryTokens.length == 0 || titleTokens.length == 0) return 0f;
+        int hits = 0;
+        for (int q : queryTokens) {
+            if (q != TokenDictionary.UNKNOWN && Arrays.binarySearch(titleTokens, q) >= 0) hits++;
+        }
+        float coverage = (float) hits / (float) queryTokens.length; // 0..1
         // Scale to reasonable boost; cap at 0.12
         return Math.min(0.12f, coverage * 0.12f);
     }
 
+    // Stored at index time; only courses indexed before it was stored are cleaned here
     private String buildCourseText(CourseDto course) {
-        StringBuilder sb = new StringBuilder();
-        
-        // Ưu tiên Name và Category
-        if (course.getName() != null) sb.append(course.getName()).append(" | ");
-        // Description kept concise; shorter helps reranker latency
-        if (course.getDescription() != null) {
-            String desc = course.getDescription();
-            if (desc.length() > 500) {
-                desc = desc.substring(0, 500);
-            }
-            
-            sb.append(embeddingService.cleanHtml(desc));
+        if (course.getRerankText() != null) {
+            return course.getRerankText();
         }
-        if (course.getInstructorName() != null) sb.append(course.getInstructorName()).append(" | ");
-        if (course.getCategoryName() != null) sb.append(course.getCategoryName()).append(" | ");
-        if (course.getPrice() != null) sb.append(course.getPrice().toPlainString()).append(" | ");
-
-        
-        return sb.toString().trim();
+        return RerankText.build(course.getName(), embeddingService.cleanHtml(course.getDescription()),
+                course.getInstructorName(), course.getCategoryName(), course.getPrice());
     }
 
     private float calculateQuality(CourseDto course) {
@@ -312,6 +504,58 @@ public class CourseSearchServiceImpl implements CourseSearchService{
         return score;
     }
 
+    /**
+     * Store the ranking under a new cursor when it has more than one page; returns null
+     * otherwise.
+     */
+    private String saveSession(String requestKey, List<CourseDto> ranked, int size) {
+        if (ranked.size() <= size) {
+            return null;
+        }
+        return searchSessionStore.save(toSession(requestKey, ranked));
+    }
+
+    private static SearchSession toSession(String requestKey, List<CourseDto> ranked) {
+        UUID[] ids = new UUID[ranked.size()];
+        float[] scores = new float[ranked.size()];
+        double[] distances = new double[ranked.size()];
+        for (int i = 0; i < ranked.size(); i++) {
+            CourseDto course = ranked.get(i);
+            ids[i] = course.getId();
+            scores[i] = course.getRelevanceScore();
+            distances[i] = course.getDistance();
+        }
+        return new SearchSession(requestKey, ids, scores, distances);
+    }
+
+    /**
+     * Hydrate one page of a stored ranking. Filters are applied again, so a course
+     * unpublished since the first page is left out rather than shown stale.
+     */
+    private Page<CourseDto> pageFromSession(SearchSession session, CourseSearchRequest req, int page, int size) {
+        int start = page * size;
+        if (start >= session.size()) {
+            return Page.empty(PageRequest.of(page, size));
+        }
+        int end = Math.min(start + size, session.size());
+        List<UUID> ids = Arrays.asList(session.getCourseIds()).subList(start, end);
+
+        Map<UUID, CourseDto> byId = new HashMap<>();
+        for (CourseDto course : courseMetadataRepository.findCoursesByIds(ids, req, null, null)) {
+            byId.putIfAbsent(course.getId(), course);
+        }
+        List<CourseDto> pageContent = new ArrayList<>(ids.size());
+        for (int i = start; i < end; i++) {
+            CourseDto course = byId.get(session.getCourseIds()[i]);
+            if (course == null) {
+                continue;
+            }
+            course.setRelevanceScore(session.getRelevanceScores()[i]);
+            course.setDistance(session.getDistances()[i]);
+            pageContent.add(course);
+        }
+        return new PageImpl<>(pageContent, PageRequest.of(page, size), session.size());
+    }
 
     private Page<CourseDto> paginate(List<CourseDto> courses, int page, int size) {
         int start = page * size;
@@ -324,5 +568,9 @@ public class CourseSearchServiceImpl implements CourseSearchService{
         List<CourseDto> pageContent = courses.subList(start, end);
         return new PageImpl<>(pageContent, PageRequest.of(page, size), courses.size());
     }
-}
 
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdown();
+    }
+}
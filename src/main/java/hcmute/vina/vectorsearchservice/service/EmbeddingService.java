@@ -2,16 +2,14 @@ package hcmute.vina.vectorsearchservice.service;
 
 import java.util.List;
 
-import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
-
 public interface EmbeddingService {
 	
-	List<Float> createEmbedding(String text);
-	float[] createEmbedding3(String text);
-	String toPgVector(List<Double> vector);
-	List<CourseTransfer> getCoursesForEmbedding();
-	void migrateAllCourse();
-	float[] toFloatArray(List<Float> list);
+	float[] createEmbedding(String text);
+	// One request for many inputs, results in input order
+	List<float[]> createEmbeddings(List<String> texts);
 	public String cleanHtml(String htmlContent);
+	// Model and output size behind createEmbedding(s), stored with each course vector
+	String getModelName();
+	int getDimension();
 
 }
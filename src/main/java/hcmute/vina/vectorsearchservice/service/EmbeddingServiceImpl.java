@@ -1,85 +1,37 @@
 package hcmute.vina.vectorsearchservice.service;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.UUID;
 
-import javax.management.RuntimeErrorException;
-
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
 import com.openai.models.embeddings.CreateEmbeddingResponse;
+import com.openai.models.embeddings.Embedding;
 import com.openai.models.embeddings.EmbeddingCreateParams;
 import com.openai.models.embeddings.EmbeddingModel;
 
-import ai.djl.Application;
-import ai.djl.MalformedModelException;
-import ai.djl.inference.Predictor;
-import ai.djl.repository.zoo.Criteria;
-import ai.djl.repository.zoo.ModelNotFoundException;
-import ai.djl.repository.zoo.ZooModel;
-import ai.djl.training.util.ProgressBar;
-import ai.djl.translate.TranslateException;
-import hcmute.vina.vectorsearchservice.dto.CourseTransfer;
-import hcmute.vina.vectorsearchservice.entity.CourseEmbedding;
-import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepository;
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
+import hcmute.vina.vectorsearchservice.service.cache.EmbeddingCache;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * OpenAI embeddings, the default provider ({@code search.embedding.provider=openai}).
+ */
 @Service
 @Slf4j
-public class EmbeddingServiceImpl implements EmbeddingService{
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "openai", matchIfMissing = true)
+public class EmbeddingServiceImpl extends AbstractEmbeddingService {
 
-    private final OpenAIClient client;
-    
-    private ZooModel<String, float[]> model;
-    
-    private Predictor<String, float[]> predictor;
-
-    // Simple LRU cache to avoid repeated OpenAI calls for the same query
-    private final Map<String, List<Float>> embeddingCache = Collections.synchronizedMap(
-            new LinkedHashMap<>(256, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<String, List<Float>> eldest) {
-                    return size() > 200; // cap cache size
-                }
-            }
-    );
-    
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
-    
-    @Autowired
-    private CourseEmbeddingRepository courseEmbeddingRepository;
-
-    //Tạm thời sử dụng OpenAI thay vì model mpnet-base-v2 nên sẽ không init
-    public void init() throws ModelNotFoundException, MalformedModelException, IOException {
-        Criteria<String, float[]> criteria = Criteria.builder()
-                .optApplication(ai.djl.Application.NLP.TEXT_EMBEDDING)
-                .setTypes(String.class, float[].class)
-                .optModelUrls("djl://ai.djl.huggingface.pytorch/sentence-transformers/paraphrase-multilingual-mpnet-base-v2")
-                .optEngine("PyTorch")
-                .optProgress(new ProgressBar())
-                .build();
+    private static final EmbeddingModel EMBEDDING_MODEL = EmbeddingModel.TEXT_EMBEDDING_3_SMALL;
+    private static final int EMBEDDING_DIMENSION = 1536;
 
-        model = criteria.loadModel();
-        predictor = model.newPredictor();
-        log.info("Embedding model loaded successfully!");
-    }
+    private final OpenAIClient client;
 
-    public EmbeddingServiceImpl(@Value("${openai.api.key}") String apiKey) {
+    public EmbeddingServiceImpl(@Value("${openai.api.key}") String apiKey, EmbeddingCache embeddingCache) {
+        super(embeddingCache);
         // Dùng OkHttpClient (chuẩn theo example OpenAI)
         this.client = OpenAIOkHttpClient.builder()
                 .apiKey(apiKey)
@@ -91,146 +43,60 @@ public class EmbeddingServiceImpl implements EmbeddingService{
      * Model OpenAi 1536 dimensional
      */
     @Override
-    public List<Float> createEmbedding(String text) {
-        if (text == null) {
-            text = "";
-        }
-        String normalized = text.trim().toLowerCase();
-        List<Float> cached = embeddingCache.get(normalized);
-        if (cached != null) {
-            return cached;
-        }
-
+    protected float[] embedQuery(String normalized) {
         EmbeddingCreateParams params = EmbeddingCreateParams.builder()
-                .model(EmbeddingModel.TEXT_EMBEDDING_3_SMALL)
+                .model(EMBEDDING_MODEL)
                 .input(normalized)
                 .build();
 
         CreateEmbeddingResponse response = client.embeddings().create(params);
-        List<Float> vector = response
+        return toFloatArray(response
                 .data()
                 .get(0)
-                .embedding();
-
-        embeddingCache.put(normalized, vector);
-        return vector;
+                .embedding());
     }
-    
 
     /**
-     * Tạo embedding từ text.
-     * Model paraphrase-multilingual-mpnet-base-v2 768 dimensional 
+     * Embed many texts with one multi-input request. Used for indexing, so results
+     * bypass the query cache.
      */
     @Override
-    public float[] createEmbedding3(String text) {
-        try {
-			return predictor.predict(text);
-		} catch (Exception e) {
-			log.error("Error happen predict embeded", e);
-			e.printStackTrace();
-		}
-		return null;
-    }
-    
-    
-    @Override
-    public String cleanHtml(String htmlContent) {
-        if (htmlContent == null || htmlContent.isEmpty()) {
-            return "";
+    public List<float[]> createEmbeddings(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
         }
-        
-        // 1. Phân tích chuỗi HTML
-        Document document = Jsoup.parse(htmlContent);
-        
-        // 2. Trích xuất văn bản thuần túy
-        String plainText = document.text();
-        
-        return plainText;
-    }
+        List<String> inputs = texts.stream()
+                .map(AbstractEmbeddingService::normalize)
+                .toList();
 
-    /**
-     * Convert List<Float> → pgvector format
-     * Example: {0.12, 0.98, -0.66}
-     */
-    @Override
-    public String toPgVector(List<Double> vector) {
-        StringBuilder sb = new StringBuilder("{");
-        for (int i = 0; i < vector.size(); i++) {
-            sb.append(vector.get(i));
-            if (i < vector.size() - 1) sb.append(",");
+        EmbeddingCreateParams params = EmbeddingCreateParams.builder()
+                .model(EMBEDDING_MODEL)
+                .inputOfArrayOfStrings(inputs)
+                .build();
+
+        CreateEmbeddingResponse response = client.embeddings().create(params);
+        float[][] vectors = new float[inputs.size()][];
+        for (Embedding embedding : response.data()) {
+            vectors[(int) embedding.index()] = toFloatArray(embedding.embedding());
         }
-        sb.append("}");
-        return sb.toString();
+        return Arrays.asList(vectors);
     }
-    
+
     @Override
-    public List<CourseTransfer> getCoursesForEmbedding() {
-        String sql = """
-            SELECT c.id, c.name, c.description, u.full_name, c.name as category_name, c.price
-            FROM courses c
-            INNER JOIN course_instructor ci
-        			ON c.id = ci.course_id
-        			AND ci.is_owner = TRUE
-        	INNER JOIN users u
-        			ON ci.user_id = u.id
-        	INNER JOIN categories cate 
-        			ON c.category_id = cate.id
-            WHERE status = 'PUBLISHED'
-        """;
-        
-        return jdbcTemplate.query(sql, (rs, rowNum) -> CourseTransfer.builder()
-                .courseId(UUID.fromString(rs.getString("id")))
-                .courseName(rs.getString("name"))
-                .description(rs.getString("description"))
-                .instructorName(rs.getString("full_name"))
-                .categoryName(rs.getString("category_name"))
-                .price(rs.getBigDecimal("price"))
-                .build());
+    public String getModelName() {
+        return EMBEDDING_MODEL.asString();
     }
-    
+
     @Override
-    public float[] toFloatArray(List<Float> list) {
+    public int getDimension() {
+        return EMBEDDING_DIMENSION;
+    }
+
+    private float[] toFloatArray(List<Float> list) {
         float[] arr = new float[list.size()];
         for (int i = 0; i < list.size(); i++) {
             arr[i] = list.get(i).floatValue();
         }
         return arr;
     }
-    
-    public void updateCourseEmbedding(CourseTransfer course) {
-
-        String text = course.getCourseName() + " | " + cleanHtml(course.getDescription()) + " | " +course.getInstructorName() + " | " +course.getCategoryName() + " | " + course.getPrice().toPlainString();
-
-        //float[] vector = toFloatArray(createEmbedding(text));
-        float[] vector = toFloatArray(createEmbedding(text));
-        CourseEmbedding embedding = CourseEmbedding.builder()
-                .courseId(course.getCourseId())
-                .embedding(vector)
-                .build();
-
-        courseEmbeddingRepository.save(embedding);
-    }
-    
-    @Override
-    public void migrateAllCourse() {
-    	List<CourseTransfer> courseTransfers = getCoursesForEmbedding();
-    	
-    	log.info("Size course transfer {}", courseTransfers.size());
-    	courseTransfers.forEach(ct->{
-        	Boolean existing = courseEmbeddingRepository.existsById(ct.getCourseId());
-        	if (!existing) {
-        		updateCourseEmbedding(ct);
-        		log.info("setup vector for course {}",ct.getCourseId());
-        	}
-
-    	});
-
-    }
-    
-    @PreDestroy
-    public void cleanup() {
-        if (predictor != null) predictor.close();
-        if (model != null) model.close();
-    }
-
 }
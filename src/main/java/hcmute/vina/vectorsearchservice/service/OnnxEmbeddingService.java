@@ -0,0 +1,199 @@
+package hcmute.vina.vectorsearchservice.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import ai.djl.MalformedModelException;
+import ai.djl.huggingface.translator.TextEmbeddingTranslatorFactory;
+import ai.djl.inference.Predictor;
+import ai.djl.repository.zoo.Criteria;
+import ai.djl.repository.zoo.ModelNotFoundException;
+import ai.djl.repository.zoo.ZooModel;
+import ai.djl.training.util.ProgressBar;
+import ai.djl.translate.TranslateException;
+import hcmute.vina.vectorsearchservice.repository.CourseVectorSearchRepository;
+import hcmute.vina.vectorsearchservice.service.cache.EmbeddingCache;
+import hcmute.vina.vectorsearchservice.util.MicroBatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local sentence embeddings on ONNX Runtime, enabled with {@code search.embedding.provider=onnx}.
+ *
+ * <p>DJL predictors are not thread-safe, so a fixed pool of them is shared over one loaded
+ * model. Query texts from concurrent searches go through a {@link MicroBatcher} and are
+ * embedded together in one forward pass; indexing batches call the pool directly.
+ *
+ * <p>Vectors are zero-padded to the {@code course_embedding} column size, which leaves cosine
+ * distances of the whole vector unchanged. Indexes over part of it do not survive the
+ * padding: the {@code short} mode's prefix is only an embedding for Matryoshka-trained
+ * models, and {@code binary} would spend most of its bits on the zero tail, so startup fails
+ * with either mode. The stored content hash includes the model name, so switching
+ * provider re-embeds every course through the backfill. Until it finishes, courses still
+ * holding vectors from the previous model are left out of vector retrieval (their
+ * distances to a query of this model mean nothing) and can only be found lexically.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "search.embedding.provider", havingValue = "onnx")
+public class OnnxEmbeddingService extends AbstractEmbeddingService {
+
+    @Value("${search.embedding.onnx.model-url:djl://ai.djl.huggingface.onnxruntime/sentence-transformers/paraphrase-multilingual-mpnet-base-v2}")
+    private String modelUrl;
+
+    // Stored in course_embedding.embedding_model and part of the content hash
+    @Value("${search.embedding.onnx.model-name:paraphrase-multilingual-mpnet-base-v2}")
+    private String modelName;
+
+    // Tokens per input, longer texts are truncated
+    @Value("${search.embedding.onnx.max-length:512}")
+    private int maxLength;
+
+    // Dimension of the course_embedding.embedding column
+    @Value("${search.embedding.onnx.stored-dimension:1536}")
+    private int storedDimension;
+
+    @Value("${search.embedding.onnx.pool-size:2}")
+    private int poolSize;
+
+    @Value("${search.embedding.onnx.max-batch-size:32}")
+    private int maxBatchSize;
+
+    // How long the first query of a batch waits for others to join
+    @Value("${search.embedding.onnx.max-batch-delay:5ms}")
+    private Duration maxBatchDelay;
+
+    @Value("${search.embedding.onnx.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${search.embedding.onnx.timeout:2s}")
+    private Duration timeout;
+
+    @Value("${search.ann.mode:full}")
+    private String annMode;
+
+    private ZooModel<String, float[]> model;
+    private BlockingQueue<Predictor<String, float[]>> predictors;
+    private MicroBatcher<String, float[]> queryBatcher;
+    private int dimension;
+
+    public OnnxEmbeddingService(EmbeddingCache embeddingCache) {
+        super(embeddingCache);
+    }
+
+    @PostConstruct
+    public void init() throws ModelNotFoundException, MalformedModelException, IOException, TranslateException {
+        if (CourseVectorSearchRepository.MODE_SHORT.equalsIgnoreCase(annMode)
+                || CourseVectorSearchRepository.MODE_BINARY.equalsIgnoreCase(annMode)) {
+            throw new IllegalStateException("search.ann.mode=" + annMode
+                    + " is not supported with the ONNX provider, use full or halfvec");
+        }
+        Criteria<String, float[]> criteria = Criteria.builder()
+                .setTypes(String.class, float[].class)
+                .optModelUrls(modelUrl)
+                .optEngine("OnnxRuntime")
+                .optTranslatorFactory(new TextEmbeddingTranslatorFactory())
+                .optArgument("truncation", true)
+                .optArgument("maxLength", maxLength)
+                .optProgress(new ProgressBar())
+                .build();
+
+        model = criteria.loadModel();
+        predictors = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        for (int i = 0; i < Math.max(1, poolSize); i++) {
+            predictors.add(model.newPredictor());
+        }
+
+        dimension = predictors.peek().predict("").length;
+        if (dimension > storedDimension) {
+            throw new IllegalStateException("Embedding model " + modelName + " produces " + dimension
+                    + " dimensions, more than the stored vector size " + storedDimension);
+        }
+        queryBatcher = new MicroBatcher<>("onnx-embedding", maxBatchSize, maxBatchDelay, poolSize,
+                queueCapacity, this::predict);
+        log.info("ONNX embedding model {} loaded, {} dimensions, {} predictors", modelName, dimension, poolSize);
+    }
+
+    @Override
+    protected float[] embedQuery(String normalized) {
+        try {
+            return queryBatcher.submit(normalized).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while embedding query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("ONNX embedding failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("ONNX embedding timed out after " + timeout.toMillis() + " ms", e);
+        }
+    }
+
+    @Override
+    public List<float[]> createEmbeddings(List<String> texts) {
+        List<String> inputs = texts.stream()
+                .map(AbstractEmbeddingService::normalize)
+                .toList();
+        List<float[]> vectors = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i += maxBatchSize) {
+            vectors.addAll(predict(inputs.subList(i, Math.min(inputs.size(), i + maxBatchSize))));
+        }
+        return vectors;
+    }
+
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    // One forward pass on a pooled predictor
+    private List<float[]> predict(List<String> inputs) {
+        Predictor<String, float[]> predictor;
+        try {
+            predictor = predictors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a predictor", e);
+        }
+        try {
+            return predictor.batchPredict(inputs).stream()
+                    .map(this::pad)
+                    .toList();
+        } catch (TranslateException e) {
+            throw new IllegalStateException("ONNX embedding failed", e);
+        } finally {
+            predictors.offer(predictor);
+        }
+    }
+
+    private float[] pad(float[] vector) {
+        return vector.length == storedDimension ? vector : Arrays.copyOf(vector, storedDimension);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (queryBatcher != null) queryBatcher.close();
+        if (predictors != null) predictors.forEach(Predictor::close);
+        if (model != null) model.close();
+    }
+}
@@ -0,0 +1,38 @@
+package hcmute.vina.vectorsearchservice.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.repository.CourseSearchDocRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically rebuilds the whole search projection. Course events keep indexed fields
+ * current; this catches counters and ratings the catalog updates without an event. An
+ * advisory lock in the database keeps replicas from running it concurrently.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.projection.refresh-enabled", havingValue = "true", matchIfMissing = true)
+public class SearchDocRefresher {
+
+    private final CourseSearchDocRepository courseSearchDocRepository;
+
+    @Scheduled(initialDelayString = "${search.projection.refresh-interval-ms:3600000}",
+            fixedDelayString = "${search.projection.refresh-interval-ms:3600000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        try {
+            if (!courseSearchDocRepository.refreshAll()) {
+                log.debug("Search projection refresh running on another instance, skipped");
+                return;
+            }
+            log.info("Search projection refreshed in {} ms", System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Search projection refresh failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hcmute.vina.vectorsearchservice.service.cache;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import hcmute.vina.vectorsearchservice.repository.PgVectorCodec;
+import hcmute.vina.vectorsearchservice.util.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier cache of text embeddings.
+ *
+ * <p>The local tier is Caffeine (lock-free reads, W-TinyLFU admission) bounded by an
+ * estimate of retained bytes rather than entry count, and stores primitive {@code float[]}.
+ * The optional Redis tier ({@code search.embedding-cache.redis.enabled}) shares vectors
+ * across replicas and restarts; Redis errors are logged and treated as misses.
+ *
+ * <p>Returned arrays are shared between callers and must not be modified.
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+
+    private static final String METRIC_NAME = "embedding.cache";
+    private static final String REDIS_KEY_PREFIX = "vector-search:embedding:";
+    // String, array and map entry headers
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final Cache<String, float[]> local;
+    private final RedisTemplate<String, byte[]> redis;
+    private final Duration redisTtl;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter redisErrors;
+
+    public EmbeddingCache(
+            @Value("${search.embedding-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${search.embedding-cache.ttl:6h}") Duration ttl,
+            @Value("${search.embedding-cache.redis.ttl:7d}") Duration redisTtl,
+            ObjectProvider<RedisTemplate<String, byte[]>> redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, float[] vector) ->
+                        ENTRY_OVERHEAD_BYTES + key.length() * 2 + vector.length * Float.BYTES)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.redis = redisTemplate.getIfAvailable();
+        this.redisTtl = redisTtl;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, METRIC_NAME);
+        this.redisHits = meterRegistry.counter(METRIC_NAME + ".redis", "result", "hit");
+        this.redisMisses = meterRegistry.counter(METRIC_NAME + ".redis", "result", "miss");
+        this.redisErrors = meterRegistry.counter(METRIC_NAME + ".redis", "result", "error");
+    }
+
+    public float[] get(String key) {
+        float[] vector = local.getIfPresent(key);
+        if (vector != null || redis == null) {
+            return vector;
+        }
+        try {
+            byte[] bytes = redis.opsForValue().get(redisKey(key));
+            if (bytes == null) {
+                redisMisses.increment();
+                return null;
+            }
+            redisHits.increment();
+            vector = PgVectorCodec.decode(bytes);
+            local.put(key, vector);
+            return vector;
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("Embedding cache read from Redis failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String key, float[] vector) {
+        local.put(key, vector);
+        if (redis == null) {
+            return;
+        }
+        try {
+            redis.opsForValue().set(redisKey(key), PgVectorCodec.encode(vector), redisTtl);
+        } catch (RuntimeException e) {
+            redisErrors.increment();
+            log.warn("Embedding cache write to Redis failed: {}", e.getMessage());
+        }
+    }
+
+    // Keys are normalised texts of any length, Redis gets a fixed-size digest
+    private static String redisKey(String key) {
+        return REDIS_KEY_PREFIX + Hashing.sha256Hex(key);
+    }
+}
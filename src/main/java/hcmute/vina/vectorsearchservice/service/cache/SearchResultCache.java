@@ -0,0 +1,164 @@
+package hcmute.vina.vectorsearchservice.service.cache;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import hcmute.vina.vectorsearchservice.dto.CourseDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Final rankings of recent searches by canonical request, bounded by estimated bytes and
+ * expiring {@code search.result-cache.ttl} after they were computed.
+ *
+ * <p>Invalidation uses version stamps: a course change stamps the course and its category
+ * with a time slightly in the future (the grace covers re-indexing that may still be
+ * running). A ranking computed before the stamp is dropped on its next read when it
+ * contains the course or any course of that category. Courses entering a ranking from
+ * another category are picked up when the ranking expires.
+ */
+@Component
+public class SearchResultCache {
+
+    private static final String METRIC_NAME = "search.result.cache";
+    // DTO fields and strings other than the description
+    private static final int COURSE_OVERHEAD_BYTES = 512;
+
+    /**
+     * @param cursor search session holding the same ranking, or null
+     */
+    public record CachedSearch(List<CourseDto> ranked, String cursor) {
+    }
+
+    private record Entry(long computedAt, List<CourseDto> ranked, Set<String> categories, String cursor) {
+    }
+
+    private final boolean enabled;
+    private final long invalidationGraceMillis;
+    private final Cache<String, Entry> results;
+    // A stamp older than the TTL cannot invalidate any live entry, so stamps share it
+    private final Cache<UUID, Long> courseStamps;
+    private final Cache<String, Long> categoryStamps;
+    private final Counter invalidations;
+
+    public SearchResultCache(
+            @Value("${search.result-cache.enabled:true}") boolean enabled,
+            @Value("${search.result-cache.max-bytes:33554432}") long maxBytes,
+            @Value("${search.result-cache.ttl:2m}") Duration ttl,
+            @Value("${search.result-cache.invalidation-grace:5s}") Duration invalidationGrace,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.invalidationGraceMillis = invalidationGrace.toMillis();
+        this.results = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> key.length() * 2 + weigh(entry.ranked()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        Duration stampTtl = ttl.plus(invalidationGrace);
+        this.courseStamps = Caffeine.newBuilder().expireAfterWrite(stampTtl).build();
+        this.categoryStamps = Caffeine.newBuilder().expireAfterWrite(stampTtl).build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, results, METRIC_NAME);
+        this.invalidations = meterRegistry.counter(METRIC_NAME + ".invalidations");
+    }
+
+    /**
+     * Timestamp to pass to {@link #put}, taken before the search starts so that changes made
+     * while it runs invalidate its result.
+     */
+    public long startComputation() {
+        return System.currentTimeMillis();
+    }
+
+    public CachedSearch get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = results.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isStale(entry)) {
+            results.asMap().remove(key, entry);
+            invalidations.increment();
+            return null;
+        }
+        return new CachedSearch(entry.ranked(), entry.cursor());
+    }
+
+    /**
+     * Cache a final ranking. The courses are shared with later hits, so neither the list nor
+     * its courses may be modified afterwards.
+     */
+    public void put(String key, long computedAt, List<CourseDto> ranked, String cursor) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> categories = new HashSet<>();
+        for (CourseDto course : ranked) {
+            if (course.getCategoryName() != null) {
+                categories.add(course.getCategoryName());
+            }
+        }
+        results.put(key, new Entry(computedAt, List.copyOf(ranked), categories, cursor));
+    }
+
+    /**
+     * Attach a search session to a cached ranking so later clients paging the same request
+     * share it. Ignored when the entry was replaced or dropped since {@code ranked} was read.
+     */
+    public void attachCursor(String key, List<CourseDto> ranked, String cursor) {
+        if (!enabled) {
+            return;
+        }
+        results.asMap().computeIfPresent(key, (k, entry) -> entry.ranked() == ranked
+                ? new Entry(entry.computedAt(), entry.ranked(), entry.categories(), cursor)
+                : entry);
+    }
+
+    /**
+     * Record that a course changed; rankings containing it or its category become stale.
+     */
+    public void onCourseChanged(UUID courseId, String categoryName) {
+        long stamp = System.currentTimeMillis() + invalidationGraceMillis;
+        courseStamps.put(courseId, stamp);
+        if (categoryName != null) {
+            categoryStamps.put(categoryName, stamp);
+        }
+    }
+
+    private boolean isStale(Entry entry) {
+        for (String category : entry.categories()) {
+            Long stamp = categoryStamps.getIfPresent(category);
+            if (stamp != null && stamp >= entry.computedAt()) {
+                return true;
+            }
+        }
+        for (CourseDto course : entry.ranked()) {
+            Long stamp = courseStamps.getIfPresent(course.getId());
+            if (stamp != null && stamp >= entry.computedAt()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int weigh(List<CourseDto> ranked) {
+        int bytes = 0;
+        for (CourseDto course : ranked) {
+            bytes += COURSE_OVERHEAD_BYTES + (course.getDescription() == null ? 0 : course.getDescription().length() * 2);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,124 @@
+package hcmute.vina.vectorsearchservice.service.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import hcmute.vina.vectorsearchservice.dto.SearchSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Search sessions by cursor token, expiring {@code search.session.ttl} after they were stored.
+ *
+ * <p>Like {@link EmbeddingCache}, the local tier is Caffeine bounded by estimated bytes, and
+ * Redis, when enabled ({@code search.embedding-cache.redis.enabled}), shares sessions
+ * across replicas so a cursor works whichever instance serves the next page. Redis errors
+ * are logged and treated as misses.
+ */
+@Slf4j
+@Component
+public class SearchSessionStore {
+
+    private static final String METRIC_NAME = "search.session";
+    private static final String REDIS_KEY_PREFIX = "vector-search:session:";
+    // UUID, float and double per ranked course
+    private static final int ENTRY_BYTES = 16 + Float.BYTES + Double.BYTES;
+    private static final int SESSION_OVERHEAD_BYTES = 128;
+
+    private final Cache<String, SearchSession> local;
+    private final RedisTemplate<String, byte[]> redis;
+    private final Duration ttl;
+
+    public SearchSessionStore(
+            @Value("${search.session.max-bytes:67108864}") long maxBytes,
+            @Value("${search.session.ttl:10m}") Duration ttl,
+            ObjectProvider<RedisTemplate<String, byte[]>> redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String cursor, SearchSession session) ->
+                        SESSION_OVERHEAD_BYTES + session.getRequestKey().length() * 2 + session.size() * ENTRY_BYTES)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.redis = redisTemplate.getIfAvailable();
+        this.ttl = ttl;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, local, METRIC_NAME);
+    }
+
+    /**
+     * Store a session under a new random cursor token.
+     */
+    public String save(SearchSession session) {
+        String cursor = UUID.randomUUID().toString();
+        local.put(cursor, session);
+        if (redis != null) {
+            try {
+                redis.opsForValue().set(REDIS_KEY_PREFIX + cursor, encode(session), ttl);
+            } catch (RuntimeException e) {
+                log.warn("Search session write to Redis failed: {}", e.getMessage());
+            }
+        }
+        return cursor;
+    }
+
+    public SearchSession get(String cursor) {
+        SearchSession session = local.getIfPresent(cursor);
+        if (session != null || redis == null) {
+            return session;
+        }
+        try {
+            byte[] bytes = redis.opsForValue().get(REDIS_KEY_PREFIX + cursor);
+            if (bytes == null) {
+                return null;
+            }
+            session = decode(bytes);
+            local.put(cursor, session);
+            return session;
+        } catch (RuntimeException e) {
+            log.warn("Search session read from Redis failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    static byte[] encode(SearchSession session) {
+        byte[] key = session.getRequestKey().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(2 * Integer.BYTES + key.length + session.size() * ENTRY_BYTES);
+        buf.putInt(key.length).put(key).putInt(session.size());
+        for (int i = 0; i < session.size(); i++) {
+            UUID id = session.getCourseIds()[i];
+            buf.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+            buf.putFloat(session.getRelevanceScores()[i]);
+            buf.putDouble(session.getDistances()[i]);
+        }
+        return buf.array();
+    }
+
+    static SearchSession decode(byte[] bytes) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        byte[] key = new byte[buf.getInt()];
+        buf.get(key);
+        int size = buf.getInt();
+        UUID[] ids = new UUID[size];
+        float[] scores = new float[size];
+        double[] distances = new double[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = new UUID(buf.getLong(), buf.getLong());
+            scores[i] = buf.getFloat();
+            distances[i] = buf.getDouble();
+        }
+        return new SearchSession(new String(key, StandardCharsets.UTF_8), ids, scores, distances);
+    }
+}
@@ -0,0 +1,116 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepositoryCustom;
+import hcmute.vina.vectorsearchservice.repository.PgVectorCodec;
+import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exact nearest neighbours over a filtered subset of courses, computed in process.
+ *
+ * <p>Every course vector is kept in an off-heap matrix, loaded from {@code course_embedding}
+ * once the application is ready and kept in sync by polling {@code updated_at}, like the
+ * HNSW index. Postgres only resolves which courses match the filters; their distances are
+ * computed here instead of reading each embedding from the table. Every replica holds a
+ * full copy of the vectors (about 6 KB per course), so it is off unless
+ * {@code search.exact-engine.enabled} is set.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "search.exact-engine.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ExactVectorEngine {
+
+    // Re-read rows slightly older than the watermark to catch late commits
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(30);
+
+    private final CourseEmbeddingRepositoryCustom courseEmbeddingRepository;
+    private final EmbeddingService embeddingService;
+
+    // Subsets at least this large are scored in parallel on the fork-join pool
+    @Value("${search.exact-engine.parallel-threshold:4096}")
+    private int parallelThreshold;
+
+    private volatile OffHeapVectorMatrix matrix;
+    private volatile Instant watermark;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        CompletableFuture.runAsync(this::load)
+                .exceptionally(ex -> {
+                    log.error("Failed to load exact vector engine, exact searches stay on Postgres", ex);
+                    return null;
+                });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the {@code k} nearest of the given courses, or null when some of them are not
+     *         loaded yet
+     */
+    public List<VectorHit> search(float[] query, Collection<UUID> courseIds, int k) {
+        return matrix.search(query, courseIds, k);
+    }
+
+    @Scheduled(fixedDelayString = "${search.exact-engine.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        OffHeapVectorMatrix current = matrix;
+        Instant since = watermark == null ? null : watermark.minus(REFRESH_OVERLAP);
+        String model = embeddingService.getModelName();
+        int[] changed = { 0 };
+        Instant latest = courseEmbeddingRepository.forEachEmbedding(model, since, (courseId, vector) -> {
+            if (upsert(current, courseId, vector)) {
+                changed[0]++;
+            }
+        });
+        if (latest != null && (watermark == null || latest.isAfter(watermark))) {
+            watermark = latest;
+        }
+        if (changed[0] > 0) {
+            log.debug("Exact vector engine refreshed {} course vectors", changed[0]);
+        }
+    }
+
+    private synchronized void load() {
+        long start = System.currentTimeMillis();
+        OffHeapVectorMatrix fresh = new OffHeapVectorMatrix(PgVectorCodec.STORED_DIMENSION, parallelThreshold);
+        Instant latest = courseEmbeddingRepository.forEachEmbedding(embeddingService.getModelName(), null,
+                (courseId, vector) -> upsert(fresh, courseId, vector));
+
+        matrix = fresh;
+        watermark = latest;
+        ready = true;
+        log.info("Exact vector engine loaded {} courses in {} ms",
+                fresh.size(), System.currentTimeMillis() - start);
+    }
+
+    private boolean upsert(OffHeapVectorMatrix target, UUID courseId, float[] vector) {
+        if (vector.length != PgVectorCodec.STORED_DIMENSION) {
+            log.warn("Skipping course {} with {}-dimensional embedding", courseId, vector.length);
+            return false;
+        }
+        return target.upsert(courseId, vector);
+    }
+}
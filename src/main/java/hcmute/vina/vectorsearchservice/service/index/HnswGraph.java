@@ -0,0 +1,538 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over cosine distance.
+ *
+ * <p>Vectors are L2-normalised on insert and stored back to back in one primitive
+ * {@code float[]} slab, so distance is {@code 1 - dot} over a contiguous range. Neighbour
+ * lists are {@code int[]} with the count in slot 0. Updates tombstone the old node and
+ * insert a new one, removals tombstone it; tombstones are traversed but never returned.
+ *
+ * <p>Searches share a read lock, writes take the write lock.
+ */
+final class HnswGraph {
+
+    private static final int MAX_LEVEL_CAP = 16;
+
+    private final int dimension;
+    private final int maxM;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;
+    private UUID[] courseIds;
+    private int[][][] links;
+    private final BitSet deleted = new BitSet();
+    private final Map<UUID, Integer> nodeByCourse = new HashMap<>();
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswGraph(int dimension, int m, int efConstruction, int initialCapacity) {
+        this.dimension = dimension;
+        this.maxM = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        int capacity = Math.max(16, initialCapacity);
+        this.vectors = new float[capacity * dimension];
+        this.courseIds = new UUID[capacity];
+        this.links = new int[capacity][][];
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int liveSize() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace the vector of a course.
+     *
+     * @return false when the course is already indexed with the same vector
+     */
+    boolean upsert(UUID courseId, float[] vector) {
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodeByCourse.get(courseId);
+            if (existing != null) {
+                if (sameVector(existing, normalized)) {
+                    return false;
+                }
+                markDeleted(existing);
+            }
+            insert(courseId, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(UUID courseId) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByCourse.remove(courseId);
+            if (node == null) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The given courses that are not in the graph.
+     */
+    List<UUID> absent(Set<UUID> courseIds) {
+        lock.readLock().lock();
+        try {
+            List<UUID> absent = new ArrayList<>();
+            for (UUID courseId : courseIds) {
+                if (!nodeByCourse.containsKey(courseId)) {
+                    absent.add(courseId);
+                }
+            }
+            return absent;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstone every course not in {@code courseIds}.
+     *
+     * @return the number of courses removed
+     */
+    int retainAll(Set<UUID> courseIds) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            Iterator<Map.Entry<UUID, Integer>> it = nodeByCourse.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<UUID, Integer> entry = it.next();
+                if (!courseIds.contains(entry.getKey())) {
+                    markDeleted(entry.getValue());
+                    it.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<VectorHit> search(float[] query, int k, int ef) {
+        float[] q = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return new ArrayList<>();
+            }
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(q, ep, level);
+            }
+            NodeHeap results = searchLayer(q, ep, Math.max(ef, k), 0, new BitSet(size));
+
+            int n = results.size();
+            int[] nodes = new int[n];
+            float[] dists = new float[n];
+            for (int i = n - 1; i >= 0; i--) {
+                dists[i] = results.peekDistance();
+                nodes[i] = results.pop();
+            }
+
+            List<VectorHit> hits = new ArrayList<>(Math.min(k, n));
+            for (int i = 0; i < n && hits.size() < k; i++) {
+                if (!deleted.get(nodes[i])) {
+                    hits.add(new VectorHit(courseIds[nodes[i]], dists[i]));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- insert
+
+    private void insert(UUID courseId, float[] normalized) {
+        ensureCapacity(size + 1);
+        int node = size++;
+        System.arraycopy(normalized, 0, vectors, node * dimension, dimension);
+        courseIds[node] = courseId;
+        nodeByCourse.put(courseId, node);
+
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[maxLinks(l) + 1];
+        }
+        links[node] = nodeLinks;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(normalized, ep, l);
+        }
+
+        BitSet visited = new BitSet(size);
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            visited.clear();
+            NodeHeap candidates = searchLayer(normalized, ep, efConstruction, l, visited);
+
+            int n = candidates.size();
+            int[] sorted = new int[n];
+            float[] sortedDists = new float[n];
+            for (int i = n - 1; i >= 0; i--) {
+                sortedDists[i] = candidates.peekDistance();
+                sorted[i] = candidates.pop();
+            }
+            ep = sorted[0];
+
+            int[] selected = selectNeighbours(sorted, sortedDists, n, maxM);
+            int[] own = nodeLinks[l];
+            for (int neighbour : selected) {
+                own[++own[0]] = neighbour;
+                connect(neighbour, node, l);
+            }
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] list = links[from][level];
+        int capacity = list.length - 1;
+        if (list[0] < capacity) {
+            list[++list[0]] = to;
+            return;
+        }
+
+        // Full: re-select among existing neighbours plus the new one
+        int n = list[0] + 1;
+        int[] nodes = new int[n];
+        float[] dists = new float[n];
+        for (int i = 0; i < n - 1; i++) {
+            nodes[i] = list[i + 1];
+        }
+        nodes[n - 1] = to;
+        for (int i = 0; i < n; i++) {
+            dists[i] = distance(from, nodes[i]);
+        }
+        sortByDistance(nodes, dists, n);
+
+        int[] selected = selectNeighbours(nodes, dists, n, capacity);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to the base
+     * than to any already selected neighbour, then top up with the closest pruned ones.
+     * Input must be sorted by ascending distance.
+     */
+    private int[] selectNeighbours(int[] nodes, float[] dists, int n, int max) {
+        if (n <= max) {
+            return Arrays.copyOf(nodes, n);
+        }
+        int[] selected = new int[max];
+        int count = 0;
+        boolean[] taken = new boolean[n];
+        for (int i = 0; i < n && count < max; i++) {
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(nodes[i], selected[j]) < dists[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = nodes[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < n && count < max; i++) {
+            if (!taken[i]) {
+                selected[count++] = nodes[i];
+            }
+        }
+        return selected;
+    }
+
+    // ---------------------------------------------------------------- search
+
+    private int greedyClosest(float[] q, int ep, int level) {
+        int current = ep;
+        float currentDist = distance(q, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int candidate = list[i];
+                float d = distance(q, candidate);
+                if (d < currentDist) {
+                    currentDist = d;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Returns a max-heap holding the {@code ef} closest nodes found on {@code level}. */
+    private NodeHeap searchLayer(float[] q, int ep, int ef, int level, BitSet visited) {
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap results = new NodeHeap(ef + 1, true);
+
+        float epDist = distance(q, ep);
+        visited.set(ep);
+        candidates.push(ep, epDist);
+        results.push(ep, epDist);
+
+        while (!candidates.isEmpty()) {
+            if (results.size() >= ef && candidates.peekDistance() > results.peekDistance()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float d = distance(q, neighbour);
+                if (results.size() < ef || d < results.peekDistance()) {
+                    candidates.push(neighbour, d);
+                    results.push(neighbour, d);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private float distance(float[] q, int node) {
+        int offset = node * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = dimension - (dimension & 3);
+        for (; i < bound; i += 4) {
+            s0 += q[i] * vectors[offset + i];
+            s1 += q[i + 1] * vectors[offset + i + 1];
+            s2 += q[i + 2] * vectors[offset + i + 2];
+            s3 += q[i + 3] * vectors[offset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += q[i] * vectors[offset + i];
+        }
+        return 1f - (s0 + s1 + s2 + s3);
+    }
+
+    private float distance(int a, int b) {
+        int oa = a * dimension;
+        int ob = b * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = dimension - (dimension & 3);
+        for (; i < bound; i += 4) {
+            s0 += vectors[oa + i] * vectors[ob + i];
+            s1 += vectors[oa + i + 1] * vectors[ob + i + 1];
+            s2 += vectors[oa + i + 2] * vectors[ob + i + 2];
+            s3 += vectors[oa + i + 3] * vectors[ob + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += vectors[oa + i] * vectors[ob + i];
+        }
+        return 1f - (s0 + s1 + s2 + s3);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Vector dimension " + vector.length + " does not match index dimension " + dimension);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] out = new float[dimension];
+        if (norm == 0) {
+            return out;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            out[i] = vector[i] * inv;
+        }
+        return out;
+    }
+
+    private boolean sameVector(int node, float[] normalized) {
+        return Arrays.equals(vectors, node * dimension, (node + 1) * dimension, normalized, 0, dimension);
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxM0 : maxM;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (-Math.log(r) * levelMultiplier), MAX_LEVEL_CAP);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= courseIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, courseIds.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        courseIds = Arrays.copyOf(courseIds, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    private static void sortByDistance(int[] nodes, float[] dists, int n) {
+        // insertion sort, lists are at most 2 * M + 1 long
+        for (int i = 1; i < n; i++) {
+            int node = nodes[i];
+            float d = dists[i];
+            int j = i - 1;
+            while (j >= 0 && dists[j] > d) {
+                nodes[j + 1] = nodes[j];
+                dists[j + 1] = dists[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            dists[j + 1] = d;
+        }
+    }
+
+    /** Binary heap of (node, distance) on primitive arrays; min- or max-ordered by distance. */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] dists;
+        private int size;
+        private final boolean max;
+
+        NodeHeap(int capacity, boolean max) {
+            this.nodes = new int[Math.max(4, capacity)];
+            this.dists = new float[nodes.length];
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekDistance() {
+            return dists[0];
+        }
+
+        void push(int node, float dist) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                dists = Arrays.copyOf(dists, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(dist, dists[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                dists[i] = dists[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            dists[i] = dist;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastDist = dists[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && before(dists[right], dists[child])) {
+                    child = right;
+                }
+                if (!before(dists[child], lastDist)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                dists[i] = dists[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            dists[i] = lastDist;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
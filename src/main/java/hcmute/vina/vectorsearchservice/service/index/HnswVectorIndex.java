@@ -0,0 +1,158 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.builder.CourseSqlBuilder;
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import hcmute.vina.vectorsearchservice.repository.CourseEmbeddingRepositoryCustom;
+import hcmute.vina.vectorsearchservice.repository.CourseSearchDocRepository;
+import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process HNSW index, enabled with {@code search.index.engine=hnsw}.
+ *
+ * <p>Loaded from {@code course_embedding} in the background once the application is ready,
+ * then kept in sync by the Kafka listener on this replica and by polling
+ * {@code course_embedding.updated_at} for rows written by other replicas. Only vectors of the
+ * current embedding model whose course has a {@code course_search_doc} row are kept: each
+ * refresh adds courses that gained a row and tombstones courses whose row disappeared
+ * (deleted or no longer searchable), so they stop taking result slots. Filters are not evaluated here; filtered searches over-fetch and
+ * the metadata lookup applies them.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "search.index.engine", havingValue = "hnsw")
+@RequiredArgsConstructor
+public class HnswVectorIndex implements VectorIndex {
+
+    // Re-read rows slightly older than the watermark to catch late commits
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(30);
+
+    private final CourseEmbeddingRepositoryCustom courseEmbeddingRepository;
+    private final CourseSearchDocRepository courseSearchDocRepository;
+    private final EmbeddingService embeddingService;
+
+    @Value("${search.index.hnsw.dimension:1536}")
+    private int dimension;
+
+    @Value("${search.index.hnsw.m:16}")
+    private int m;
+
+    @Value("${search.index.hnsw.ef-construction:128}")
+    private int efConstruction;
+
+    @Value("${search.index.hnsw.ef-search:128}")
+    private int efSearch;
+
+    @Value("${search.index.hnsw.overfetch-factor:4}")
+    private int overfetchFactor;
+
+    // Rebuild once tombstones exceed this share of live nodes
+    @Value("${search.index.hnsw.max-deleted-ratio:0.2}")
+    private double maxDeletedRatio;
+
+    private volatile HnswGraph graph;
+    private volatile Instant watermark;
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        CompletableFuture.runAsync(this::rebuild)
+                .exceptionally(ex -> {
+                    log.error("Failed to load HNSW index, searches stay on pgvector", ex);
+                    return null;
+                });
+    }
+
+    @Override
+    public List<VectorHit> search(float[] query, int k, CourseSearchRequest filter) {
+        int fetch = CourseSqlBuilder.hasFilters(filter) ? k * Math.max(1, overfetchFactor) : k;
+        return graph.search(query, fetch, Math.max(efSearch, fetch));
+    }
+
+    @Override
+    public void upsert(UUID courseId, float[] vector) {
+        HnswGraph current = graph;
+        if (current != null) {
+            current.upsert(courseId, vector);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.hnsw.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        HnswGraph current = graph;
+        if (current.deletedCount() > current.liveSize() * maxDeletedRatio) {
+            rebuild();
+            return;
+        }
+        Instant since = watermark == null ? null : watermark.minus(REFRESH_OVERLAP);
+        String model = embeddingService.getModelName();
+        Set<UUID> searchable = courseSearchDocRepository.findCourseIds(model);
+        int[] changed = { 0 };
+        Instant latest = courseEmbeddingRepository.forEachEmbedding(model, since, (courseId, vector) -> {
+            if (searchable.contains(courseId) && current.upsert(courseId, vector)) {
+                changed[0]++;
+            }
+        });
+        if (latest != null && (watermark == null || latest.isAfter(watermark))) {
+            watermark = latest;
+        }
+        // Courses embedded before they became searchable are older than the watermark
+        courseEmbeddingRepository.forEachEmbeddingOf(model, current.absent(searchable), (courseId, vector) -> {
+            if (current.upsert(courseId, vector)) {
+                changed[0]++;
+            }
+        });
+        int removed = current.retainAll(searchable);
+        if (changed[0] > 0 || removed > 0) {
+            log.info("HNSW index refreshed {} course vectors, removed {}", changed[0], removed);
+        }
+    }
+
+    /**
+     * Build a fresh graph from the whole table and swap it in. Writes that land while
+     * building are picked up by the next refresh through the watermark overlap.
+     */
+    private synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        HnswGraph fresh = new HnswGraph(dimension, m, efConstruction,
+                graph == null ? 1024 : graph.liveSize());
+        String model = embeddingService.getModelName();
+        Set<UUID> searchable = courseSearchDocRepository.findCourseIds(model);
+        Instant latest = courseEmbeddingRepository.forEachEmbedding(model, null, (courseId, vector) -> {
+            if (searchable.contains(courseId)) {
+                fresh.upsert(courseId, vector);
+            }
+        });
+
+        graph = fresh;
+        watermark = latest;
+        ready = true;
+        log.info("HNSW index built with {} courses in {} ms",
+                fresh.liveSize(), System.currentTimeMillis() - start);
+    }
+}
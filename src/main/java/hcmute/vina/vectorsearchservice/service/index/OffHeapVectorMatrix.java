@@ -0,0 +1,265 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * All course vectors L2-normalised and stored row after row in direct (off-heap) buffers of
+ * {@value #CHUNK_ROWS} rows each, for exact k-NN over a subset of courses. Growing adds a
+ * buffer, so rows are never copied and no single buffer approaches the 2 GiB limit.
+ *
+ * <p>Distance is {@code 1 - dot}, computed with four scalar accumulators over the row. Subsets
+ * larger than the parallel threshold are scored in fork-join chunks on the common pool;
+ * top-k selection is a bounded heap over the scores. Updates overwrite a course's row in
+ * place.
+ *
+ * <p>Searches share a read lock, writes take the write lock.
+ */
+final class OffHeapVectorMatrix {
+
+    static final int CHUNK_ROWS = 4096;
+
+    private final int dimension;
+    private final int parallelThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> rowByCourse = new HashMap<>();
+
+    private final List<FloatBuffer> chunks = new ArrayList<>();
+    private UUID[] courseIds = new UUID[CHUNK_ROWS];
+    private int size;
+
+    OffHeapVectorMatrix(int dimension, int parallelThreshold) {
+        if ((long) CHUNK_ROWS * dimension * Float.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Vector dimension " + dimension + " is too large");
+        }
+        this.dimension = dimension;
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or overwrite the vector of a course.
+     *
+     * @return false when the course is already stored with the same vector
+     */
+    boolean upsert(UUID courseId, float[] vector) {
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByCourse.get(courseId);
+            if (row == null) {
+                if (size == chunks.size() * CHUNK_ROWS) {
+                    grow();
+                }
+                row = size++;
+                rowByCourse.put(courseId, row);
+                courseIds[row] = courseId;
+            } else if (sameRow(row, normalized)) {
+                return false;
+            }
+            chunks.get(row / CHUNK_ROWS).put((row % CHUNK_ROWS) * dimension, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exact {@code k} nearest of the given courses, closest first.
+     *
+     * @return null when some of the courses are not loaded, so the caller can fall back to a
+     *         source that has them all
+     */
+    List<VectorHit> search(float[] query, Collection<UUID> candidates, int k) {
+        float[] q = normalize(query);
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[candidates.size()];
+            int n = 0;
+            for (UUID courseId : candidates) {
+                Integer row = rowByCourse.get(courseId);
+                if (row == null) {
+                    return null;
+                }
+                rows[n++] = row;
+            }
+
+            float[] distances = new float[n];
+            if (n >= parallelThreshold) {
+                ForkJoinPool.commonPool().invoke(new ScoreChunk(q, rows, distances, 0, n));
+            } else {
+                score(q, rows, distances, 0, n);
+            }
+            return topK(rows, distances, Math.min(k, n));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void score(float[] q, int[] rows, float[] distances, int from, int to) {
+        for (int i = from; i < to; i++) {
+            distances[i] = distance(q, rows[i]);
+        }
+    }
+
+    private float distance(float[] q, int row) {
+        FloatBuffer m = chunks.get(row / CHUNK_ROWS);
+        int offset = (row % CHUNK_ROWS) * dimension;
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        int bound = dimension - (dimension & 3);
+        for (; i < bound; i += 4) {
+            s0 += q[i] * m.get(offset + i);
+            s1 += q[i + 1] * m.get(offset + i + 1);
+            s2 += q[i + 2] * m.get(offset + i + 2);
+            s3 += q[i + 3] * m.get(offset + i + 3);
+        }
+        for (; i < dimension; i++) {
+            s0 += q[i] * m.get(offset + i);
+        }
+        return 1f - (s0 + s1 + s2 + s3);
+    }
+
+    // Bounded max-heap of candidate positions keyed by distance, then sorted ascending
+    private List<VectorHit> topK(int[] rows, float[] distances, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int i = 0; i < distances.length; i++) {
+            if (heapSize < k) {
+                int j = heapSize++;
+                while (j > 0 && distances[heap[(j - 1) >>> 1]] < distances[i]) {
+                    heap[j] = heap[(j - 1) >>> 1];
+                    j = (j - 1) >>> 1;
+                }
+                heap[j] = i;
+            } else if (distances[i] < distances[heap[0]]) {
+                siftDown(heap, heapSize, distances, i);
+            }
+        }
+
+        Integer[] order = new Integer[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            order[i] = heap[i];
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(distances[a], distances[b]));
+        List<VectorHit> hits = new ArrayList<>(heapSize);
+        for (int position : order) {
+            hits.add(new VectorHit(courseIds[rows[position]], distances[position]));
+        }
+        return hits;
+    }
+
+    // Replace the heap root (largest distance) with candidate and restore the heap
+    private static void siftDown(int[] heap, int size, float[] distances, int candidate) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int largest = left;
+            int right = left + 1;
+            if (right < size && distances[heap[right]] > distances[heap[left]]) {
+                largest = right;
+            }
+            if (distances[heap[largest]] <= distances[candidate]) {
+                break;
+            }
+            heap[i] = heap[largest];
+            i = largest;
+        }
+        heap[i] = candidate;
+    }
+
+    private boolean sameRow(int row, float[] normalized) {
+        FloatBuffer m = chunks.get(row / CHUNK_ROWS);
+        int offset = (row % CHUNK_ROWS) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            if (m.get(offset + i) != normalized[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        chunks.add(ByteBuffer.allocateDirect(CHUNK_ROWS * dimension * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer());
+        int capacity = chunks.size() * CHUNK_ROWS;
+        if (courseIds.length < capacity) {
+            courseIds = Arrays.copyOf(courseIds, Math.max(capacity, courseIds.length * 2));
+        }
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Vector dimension " + vector.length + " does not match matrix dimension " + dimension);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] out = new float[dimension];
+        if (norm == 0) {
+            return out;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            out[i] = vector[i] * inv;
+        }
+        return out;
+    }
+
+    /** Scores a range of candidates, splitting it in halves down to the parallel threshold. */
+    @SuppressWarnings("serial")
+    private final class ScoreChunk extends RecursiveAction {
+        private final float[] q;
+        private final int[] rows;
+        private final float[] distances;
+        private final int from;
+        private final int to;
+
+        ScoreChunk(float[] q, int[] rows, float[] distances, int from, int to) {
+            this.q = q;
+            this.rows = rows;
+            this.distances = distances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= parallelThreshold) {
+                score(q, rows, distances, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreChunk(q, rows, distances, from, mid),
+                    new ScoreChunk(q, rows, distances, mid, to));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import hcmute.vina.vectorsearchservice.repository.CourseVectorSearchRepository;
+import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Nearest neighbour search executed by Postgres on the pgvector HNSW index.
+ * Always available, and used as fallback while an in-process index is loading.
+ */
+@Component
+@RequiredArgsConstructor
+public class PgVectorIndex implements VectorIndex {
+
+    private final CourseVectorSearchRepository courseVectorSearchRepository;
+    private final EmbeddingService embeddingService;
+
+    @Override
+    public List<VectorHit> search(float[] query, int k, CourseSearchRequest filter) {
+        return courseVectorSearchRepository.findNearest(query, embeddingService.getModelName(), filter, k);
+    }
+
+    @Override
+    public void upsert(UUID courseId, float[] vector) {
+        // course_search_doc is refreshed by the indexing pipeline, nothing to do
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VectorHit {
+	private UUID courseId;
+	// Cosine distance: 1 - cosine_similarity
+	private double distance;
+}
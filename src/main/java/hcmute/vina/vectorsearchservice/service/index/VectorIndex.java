@@ -0,0 +1,23 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.util.List;
+import java.util.UUID;
+
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+
+/**
+ * Nearest neighbour stage of the search pipeline. Implementations only return course ids
+ * and distances; course metadata is hydrated separately.
+ */
+public interface VectorIndex {
+
+	/**
+	 * Closest courses to {@code query}, nearest first. Implementations may apply the request
+	 * filters natively or over-fetch; callers re-check filters when hydrating.
+	 */
+	List<VectorHit> search(float[] query, int k, CourseSearchRequest filter);
+
+	void upsert(UUID courseId, float[] vector);
+
+	boolean isReady();
+}
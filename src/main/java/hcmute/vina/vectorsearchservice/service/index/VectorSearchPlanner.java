@@ -0,0 +1,82 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import hcmute.vina.vectorsearchservice.dto.request.CourseSearchRequest;
+import hcmute.vina.vectorsearchservice.enums.VectorSearchStrategy;
+import hcmute.vina.vectorsearchservice.repository.CourseVectorSearchRepository;
+import hcmute.vina.vectorsearchservice.service.EmbeddingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses how the nearest neighbour stage runs for a request, from the number of courses
+ * matching its filters.
+ *
+ * <p>An ANN index explores the graph in global distance order, so a narrow filter either
+ * makes it scan a large part of the index or leaves the candidate pool under-filled. When
+ * few courses match, computing the exact distance to each of them is cheaper and exact, so
+ * those requests use a pre-filtered scan. When the exact engine is loaded the scan runs in
+ * process over its vectors and Postgres only resolves the matching ids; otherwise it runs in
+ * Postgres. Unfiltered requests, and requests whose count is unknown, use the index.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VectorSearchPlanner {
+
+    private final VectorIndex vectorIndex;
+    private final PgVectorIndex pgVectorIndex;
+    private final CourseVectorSearchRepository courseVectorSearchRepository;
+    private final EmbeddingService embeddingService;
+    private final ObjectProvider<ExactVectorEngine> exactVectorEngine;
+
+    // Filtered searches matching at most this many courses are scanned exactly
+    @Value("${search.ann.exact-scan-threshold:2000}")
+    private long exactScanThreshold;
+
+    // Scoring in process is cheaper, so the in-memory engine takes larger subsets
+    @Value("${search.exact-engine.max-subset:10000}")
+    private long inMemoryThreshold;
+
+    /**
+     * @param matchingCourses courses matching the filters, or a negative value when unknown
+     */
+    public VectorSearchStrategy plan(long matchingCourses) {
+        if (matchingCourses < 0) {
+            return VectorSearchStrategy.ANN;
+        }
+        ExactVectorEngine engine = exactVectorEngine.getIfAvailable();
+        if (engine != null && engine.isReady() && matchingCourses <= inMemoryThreshold) {
+            return VectorSearchStrategy.EXACT_IN_MEMORY;
+        }
+        return matchingCourses <= exactScanThreshold
+                ? VectorSearchStrategy.EXACT_SCAN
+                : VectorSearchStrategy.ANN;
+    }
+
+    public List<VectorHit> search(float[] vector, int k, CourseSearchRequest req, long matchingCourses) {
+        VectorSearchStrategy strategy = plan(matchingCourses);
+        log.debug("Vector search strategy {} for {} matching courses", strategy, matchingCourses);
+        if (strategy == VectorSearchStrategy.EXACT_IN_MEMORY) {
+            List<UUID> courseIds = courseVectorSearchRepository.findMatchingIds(embeddingService.getModelName(), req);
+            List<VectorHit> hits = exactVectorEngine.getObject().search(vector, courseIds, k);
+            if (hits != null) {
+                return hits;
+            }
+            // Some matching courses are newer than the last refresh
+            log.debug("Exact vector engine missing matching courses, scanning in Postgres");
+            return courseVectorSearchRepository.findNearestExact(vector, embeddingService.getModelName(), req, k);
+        }
+        if (strategy == VectorSearchStrategy.EXACT_SCAN) {
+            return courseVectorSearchRepository.findNearestExact(vector, embeddingService.getModelName(), req, k);
+        }
+        VectorIndex index = vectorIndex.isReady() ? vectorIndex : pgVectorIndex;
+        return index.search(vector, k, req);
+    }
+}
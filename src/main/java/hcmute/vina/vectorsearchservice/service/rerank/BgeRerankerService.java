@@ -1,98 +1,325 @@
 package hcmute.vina.vectorsearchservice.service.rerank;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
 import ai.djl.inference.Predictor;
 import ai.djl.repository.zoo.Criteria;
 import ai.djl.repository.zoo.ZooModel;
 import ai.djl.training.util.ProgressBar;
+import ai.djl.translate.TranslateException;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import ai.djl.translate.TranslateException;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Local BGE cross-encoder reranker, enabled with {@code search.rerank.provider=bge}.
+ *
+ * <ul>
+ * <li>A fixed pool of predictors shares one loaded model; DJL predictors are not thread-safe.</li>
+ * <li>Documents are tokenized once and cached by course id and text, queries once per call;
+ * pairs are assembled from token ids as {@code <s> query </s></s> document </s>}.</li>
+ * <li>Pairs are sorted by length and cut into batches bounded by pair count and padded
+ * tokens, so short pairs are not padded to the longest document of the request.</li>
+ * <li>Asynchronous calls run on a dedicated executor with one thread per predictor and a
+ * bounded queue; a request cancelled by its caller is skipped if it has not started and
+ * stops between forward passes if it has.</li>
+ * </ul>
+ *
+ * If the model cannot be loaded the reranker reports itself unavailable and search falls
+ * back to hybrid scoring.
+ */
+@Slf4j
 @Service
-public class BgeRerankerService {
+@ConditionalOnProperty(name = "search.rerank.provider", havingValue = "bge")
+public class BgeRerankerService implements RerankerService {
+
+    // XLM-R special tokens
+    private static final long CLS_TOKEN_ID = 0;
+    private static final long SEP_TOKEN_ID = 2;
+    private static final int SPECIAL_TOKENS = 4;
+
+    private record DocumentKey(UUID courseId, int textHash, int textLength) {
+    }
+
+    @Value("${search.rerank.bge.model-url:djl://ai.djl.huggingface.pytorch/BAAI/bge-reranker-v2-m3}")
+    private String modelUrl;
 
-    private ZooModel<RankInput[], float[]> model;
-    private Predictor<RankInput[], float[]> predictor;
+    @Value("${search.rerank.bge.engine:PyTorch}")
+    private String engine;
 
-    @Value("${search.rerank:true}")
-    private boolean rerankEnabled;
+    @Value("${search.rerank.bge.tokenizer:BAAI/bge-reranker-v2-m3}")
+    private String tokenizerName;
 
-    @Value("${search.rerank.batchSize:32}")
+    // Tokens per (query, document) pair, including special tokens
+    @Value("${search.rerank.bge.max-length:512}")
+    private int maxLength;
+
+    @Value("${search.rerank.bge.max-query-tokens:64}")
+    private int maxQueryTokens;
+
+    @Value("${search.rerank.bge.batch-size:32}")
     private int batchSize;
 
-//    @PostConstruct
+    // Upper bound on pairs x padded length per forward pass
+    @Value("${search.rerank.bge.max-batch-tokens:8192}")
+    private int maxBatchTokens;
+
+    @Value("${search.rerank.bge.pool-size:2}")
+    private int poolSize;
+
+    @Value("${search.rerank.bge.document-cache-size:10000}")
+    private long documentCacheSize;
+
+    // Asynchronous requests waiting for a thread; beyond this they get no rerank scores
+    @Value("${search.rerank.bge.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ZooModel<long[][], float[]> model;
+    private BlockingQueue<Predictor<long[][], float[]>> predictors;
+    private HuggingFaceTokenizer tokenizer;
+    private Cache<DocumentKey, long[]> documentTokens;
+    private ExecutorService rerankExecutor;
+
+    @PostConstruct
     public void init() {
-        if (!rerankEnabled) {
-            predictor = null;
-            model = null;
-            return;
-        }
         try {
-            Criteria<RankInput[], float[]> criteria = Criteria.builder()
-                    .setTypes(RankInput[].class, float[].class)
-                    .optModelUrls("djl://ai.djl.huggingface.pytorch/BAAI/bge-reranker-v2-m3")
-                    .optEngine("PyTorch")
+            Criteria<long[][], float[]> criteria = Criteria.builder()
+                    .setTypes(long[][].class, float[].class)
+                    .optModelUrls(modelUrl)
+                    .optEngine(engine)
                     .optTranslator(new BgeRerankerTranslator())
                     .optProgress(new ProgressBar())
                     .build();
 
+            tokenizer = HuggingFaceTokenizer.newInstance(tokenizerName);
             model = criteria.loadModel();
-            predictor = model.newPredictor();
-            System.out.println("BGE Reranker loaded.");
+            predictors = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+            for (int i = 0; i < Math.max(1, poolSize); i++) {
+                predictors.add(model.newPredictor());
+            }
+            documentTokens = Caffeine.newBuilder()
+                    .maximumSize(documentCacheSize)
+                    .build();
+            AtomicInteger threadCount = new AtomicInteger();
+            rerankExecutor = new ThreadPoolExecutor(predictors.size(), predictors.size(), 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                        Thread thread = new Thread(r, "bge-rerank-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            log.info("BGE reranker loaded with {} predictors", poolSize);
         } catch (Exception e) {
-            e.printStackTrace();
-            predictor = null;
-            model = null;
+            log.error("Failed to load BGE reranker, reranking disabled", e);
+            cleanup();
         }
     }
 
-    public List<ScoredDocument> batchRerank(String query, List<String> docs) {
-        List<ScoredDocument> out = new ArrayList<>();
-        if (predictor == null) return out;
+    @Override
+    public List<ScoredDocument> batchRerank(String query, List<RerankDocument> docs) {
+        return rerank(query, docs, () -> false);
+    }
 
-        // create RankInput array
-        RankInput[] all = docs.stream().map(d -> new RankInput(query, d)).toArray(RankInput[]::new);
+    @Override
+    public CompletableFuture<List<ScoredDocument>> rerankAsync(String query, List<RerankDocument> docs) {
+        CompletableFuture<List<ScoredDocument>> result = new CompletableFuture<>();
+        if (!isAvailable() || docs == null || docs.isEmpty()) {
+            result.complete(new ArrayList<>());
+            return result;
+        }
+        try {
+            rerankExecutor.execute(() -> {
+                // Skipped when the caller gave up while this waited in the queue
+                if (!result.isDone()) {
+                    result.complete(rerank(query, docs, result::isDone));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("BGE rerank queue is full, skipping rerank");
+            result.complete(new ArrayList<>());
+        }
+        return result;
+    }
+
+    private List<ScoredDocument> rerank(String query, List<RerankDocument> docs, BooleanSupplier abandoned) {
+        List<ScoredDocument> out = new ArrayList<>();
+        if (!isAvailable() || docs == null || docs.isEmpty()) {
+            return out;
+        }
 
         try {
-            float[] scores = predictWithChunking(all, batchSize);
+            long[] queryIds = truncate(encode(query), maxQueryTokens);
+            int documentBudget = Math.max(1, maxLength - SPECIAL_TOKENS - queryIds.length);
+            long[][] pairs = new long[docs.size()][];
+            for (int i = 0; i < docs.size(); i++) {
+                pairs[i] = buildPair(queryIds, truncate(documentIds(docs.get(i)), documentBudget));
+            }
+
+            float[] scores = score(pairs, abandoned);
             for (int i = 0; i < docs.size(); ++i) {
-                out.add(new ScoredDocument(i, docs.get(i), scores[i]));
+                out.add(new ScoredDocument(i, docs.get(i).getText(), scores[i]));
             }
             out.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
             return out;
+        } catch (CancellationException e) {
+            return new ArrayList<>();
         } catch (Exception e) {
-            e.printStackTrace();
-            // fallback: return unchanged with default score
-            for (int i = 0; i < docs.size(); ++i) {
-                out.add(new ScoredDocument(i, docs.get(i), 0.5f));
+            log.warn("BGE rerank failed: {}", e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Pairs from different queries go through the same length-sorted batches, so one forward
+     * pass can serve several concurrent searches.
+     */
+    @Override
+    public float[] scorePairs(List<RerankPair> pairs) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("BGE reranker is not available");
+        }
+        Map<String, long[]> queryIds = new HashMap<>();
+        long[][] tokenized = new long[pairs.size()][];
+        for (int i = 0; i < pairs.size(); i++) {
+            RerankPair pair = pairs.get(i);
+            long[] query = queryIds.computeIfAbsent(pair.getQuery(), q -> truncate(encode(q), maxQueryTokens));
+            int documentBudget = Math.max(1, maxLength - SPECIAL_TOKENS - query.length);
+            tokenized[i] = buildPair(query, truncate(documentIds(pair.getDocument()), documentBudget));
+        }
+        try {
+            return score(tokenized, () -> false);
+        } catch (TranslateException e) {
+            throw new IllegalStateException("BGE rerank failed", e);
+        }
+    }
+
+    /**
+     * Score pairs in length order, in batches of similar length. Stops with a
+     * {@link CancellationException} before the next batch once {@code abandoned} is true.
+     */
+    private float[] score(long[][] pairs, BooleanSupplier abandoned) throws TranslateException {
+        // Length in the high bits, original position in the low bits: one primitive sort
+        long[] order = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            order[i] = ((long) pairs[i].length << 32) | i;
+        }
+        Arrays.sort(order);
+
+        float[] scores = new float[pairs.length];
+        int start = 0;
+        while (start < order.length) {
+            if (abandoned.getAsBoolean()) {
+                throw new CancellationException("Rerank abandoned by caller");
             }
-            return out;
+            int end = start + 1;
+            while (end < order.length && end - start < batchSize
+                    && (long) (end - start + 1) * (order[end] >>> 32) <= maxBatchTokens) {
+                end++;
+            }
+
+            long[][] batch = new long[end - start][];
+            for (int i = start; i < end; i++) {
+                batch[i - start] = pairs[(int) order[i]];
+            }
+            float[] part = predict(batch);
+            for (int i = start; i < end; i++) {
+                scores[(int) order[i]] = part[i - start];
+            }
+            start = end;
+        }
+        return scores;
+    }
+
+    private float[] predict(long[][] batch) throws TranslateException {
+        Predictor<long[][], float[]> predictor;
+        try {
+            predictor = predictors.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a predictor", e);
+        }
+        try {
+            return predictor.predict(batch);
+        } finally {
+            predictors.offer(predictor);
         }
     }
 
-    private float[] predictWithChunking(RankInput[] all, int chunkSize) throws TranslateException {
-        List<Float> acc = new ArrayList<>();
-        for (int i = 0; i < all.length; i += chunkSize) {
-            int end = Math.min(all.length, i + chunkSize);
-            RankInput[] sub = Arrays.copyOfRange(all, i, end);
-            float[] part = predictor.predict(sub);
-            for (float v : part) acc.add(v);
-        }
-        float[] res = new float[acc.size()];
-        for (int i = 0; i < res.length; ++i) res[i] = acc.get(i);
-        return res;
+    private long[] documentIds(RerankDocument doc) {
+        String text = doc.getText() == null ? "" : doc.getText();
+        if (doc.getCourseId() == null) {
+            return encode(text);
+        }
+        return documentTokens.get(new DocumentKey(doc.getCourseId(), text.hashCode(), text.length()),
+                key -> encode(text));
+    }
+
+    private long[] encode(String text) {
+        return tokenizer.encode(text == null ? "" : text, false, false).getIds();
+    }
+
+    private static long[] buildPair(long[] queryIds, long[] documentIds) {
+        long[] ids = new long[queryIds.length + documentIds.length + SPECIAL_TOKENS];
+        int pos = 0;
+        ids[pos++] = CLS_TOKEN_ID;
+        System.arraycopy(queryIds, 0, ids, pos, queryIds.length);
+        pos += queryIds.length;
+        ids[pos++] = SEP_TOKEN_ID;
+        ids[pos++] = SEP_TOKEN_ID;
+        System.arraycopy(documentIds, 0, ids, pos, documentIds.length);
+        pos += documentIds.length;
+        ids[pos] = SEP_TOKEN_ID;
+        return ids;
+    }
+
+    private static long[] truncate(long[] ids, int max) {
+        return ids.length <= max ? ids : Arrays.copyOf(ids, max);
     }
 
     @PreDestroy
     public void cleanup() {
-        if (predictor != null) predictor.close();
-        if (model != null) model.close();
+        if (rerankExecutor != null) {
+            rerankExecutor.shutdownNow();
+            rerankExecutor = null;
+        }
+        if (predictors != null) {
+            predictors.forEach(Predictor::close);
+            predictors = null;
+        }
+        if (model != null) {
+            model.close();
+            model = null;
+        }
+        if (tokenizer != null) {
+            tokenizer.close();
+            tokenizer = null;
+        }
     }
 
+    @Override
     public boolean isAvailable() {
-        return predictor != null;
+        return predictors != null;
     }
 }
@@ -9,9 +9,12 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -19,10 +22,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import hcmute.vina.vectorsearchservice.util.CircuitBreaker;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Jina AI rerank API client.
+ *
+ * <p>Calls are asynchronous: callers wait only as long as their own deadline, while the HTTP
+ * call runs to completion and fills the result cache for the next identical request.
+ * Identical requests in flight share one call. A circuit breaker stops calling the API
+ * after repeated failures or slow responses, during which the reranker reports itself
+ * unavailable and search uses hybrid scoring.
+ */
+@Slf4j
 @Service
-public class JinaRerankerService {
+@ConditionalOnProperty(name = "search.rerank.provider", havingValue = "jina", matchIfMissing = true)
+public class JinaRerankerService implements RerankerService {
 
     @Value("${jina.api.key:}")
     private String jinaApiKey;
@@ -30,9 +46,25 @@ public class JinaRerankerService {
     @Value("${search.rerank.enabled:false}")
     private boolean rerankEnabled;
 
+    // Upper bound for the HTTP call itself; callers usually stop waiting much earlier
+    @Value("${search.rerank.jina.timeout:5s}")
+    private Duration requestTimeout;
+
+    // Responses slower than this count as failures for the circuit breaker
+    @Value("${search.rerank.jina.slow-call-threshold:1s}")
+    private Duration slowCallThreshold;
+
+    @Value("${search.rerank.jina.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${search.rerank.jina.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
-    
+    private final ConcurrentMap<String, CompletableFuture<List<ScoredDocument>>> inFlightReranks = new ConcurrentHashMap<>();
+    private CircuitBreaker circuitBreaker;
+
     // LRU cache for rerank results
     private final Map<String, List<ScoredDocument>> rerankCache = new LinkedHashMap<String, List<ScoredDocument>>(100, 0.75f, true) {
         @Override
@@ -50,103 +82,169 @@ public class JinaRerankerService {
 
     @PostConstruct
     public void init() {
+        circuitBreaker = new CircuitBreaker("jina-rerank", failureThreshold, openDuration);
+
         if (!rerankEnabled) {
-            System.out.println("Reranker disabled in config (search.rerank.enabled=false)");
+            log.info("Reranker disabled in config (search.rerank.enabled=false)");
             return;
         }
 
         if (jinaApiKey == null || jinaApiKey.isBlank()) {
-            System.err.println("JINA_API_KEY not configured. Reranker will be disabled.");
+            log.warn("JINA_API_KEY not configured. Reranker will be disabled.");
             return;
         }
 
-        System.out.println("Jina AI Reranker configured ");
+        log.info("Jina AI Reranker configured");
     }
 
-    public List<ScoredDocument> batchRerank(String query, List<String> docs) {
-        List<ScoredDocument> result = new ArrayList<>();
-
-        if (!isAvailable()) {
-            return result;
-        }
+    @Override
+    public List<ScoredDocument> batchRerank(String query, List<RerankDocument> rerankDocuments) {
+        return rerankAsync(query, rerankDocuments).join();
+    }
 
-        if (docs == null || docs.isEmpty()) {
-            return result;
+    /**
+     * Never completes exceptionally: failures, an open circuit and a missing API key all
+     * produce an empty list.
+     */
+    @Override
+    public CompletableFuture<List<ScoredDocument>> rerankAsync(String query, List<RerankDocument> rerankDocuments) {
+        if (!isAvailable() || rerankDocuments == null || rerankDocuments.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
+        List<String> docs = rerankDocuments.stream().map(RerankDocument::getText).toList();
 
         // Generate cache key from query and documents
         String cacheKey = generateCacheKey(query, docs);
-        
+
         // Check cache first
         synchronized (rerankCache) {
             List<ScoredDocument> cached = rerankCache.get(cacheKey);
             if (cached != null) {
-                System.out.println("Rerank cache hit for query: " + query.substring(0, Math.min(50, query.length())));
-                return new ArrayList<>(cached); // Return copy to avoid external modification
+                log.debug("Rerank cache hit for query: {}", query.substring(0, Math.min(50, query.length())));
+                return CompletableFuture.completedFuture(new ArrayList<>(cached)); // Return copy to avoid external modification
             }
         }
 
-        try {
-            // Build request payload
-            ObjectNode requestBody = objectMapper.createObjectNode();
-            requestBody.put("model", "jina-reranker-v3"); //jina-reranker-v2-base-multilingual 
-            requestBody.put("query", query);
-            
-            ArrayNode documentsArray = objectMapper.createArrayNode();
-            for (String doc : docs) {
-                documentsArray.add(doc);
+        // Identical (query, docs) requests in flight share one API call
+        CompletableFuture<List<ScoredDocument>> call = new CompletableFuture<>();
+        CompletableFuture<List<ScoredDocument>> existing = inFlightReranks.putIfAbsent(cacheKey, call);
+        if (existing == null) {
+            callRerankApi(query, docs, cacheKey).whenComplete((result, ex) -> {
+                inFlightReranks.remove(cacheKey, call);
+                call.complete(result != null ? result : new ArrayList<>());
+            });
+            existing = call;
+        }
+        return existing.thenApply(ArrayList::new);
+    }
+
+    /**
+     * The API takes one query per call, so pairs are grouped by query and the groups are
+     * scored concurrently.
+     */
+    @Override
+    public float[] scorePairs(List<RerankPair> pairs) {
+        Map<String, List<Integer>> byQuery = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            byQuery.computeIfAbsent(pairs.get(i).getQuery(), q -> new ArrayList<>()).add(i);
+        }
+
+        Map<List<Integer>, CompletableFuture<List<ScoredDocument>>> calls = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> group : byQuery.entrySet()) {
+            List<RerankDocument> docs = group.getValue().stream().map(i -> pairs.get(i).getDocument()).toList();
+            calls.put(group.getValue(), rerankAsync(group.getKey(), docs));
+        }
+
+        float[] scores = new float[pairs.size()];
+        for (Map.Entry<List<Integer>, CompletableFuture<List<ScoredDocument>>> call : calls.entrySet()) {
+            List<Integer> positions = call.getKey();
+            List<ScoredDocument> scored = call.getValue().join();
+            if (scored.size() != positions.size()) {
+                throw new IllegalStateException("Jina rerank returned " + scored.size() + " scores for " + positions.size() + " documents");
             }
-            requestBody.set("documents", documentsArray);
-            requestBody.put("top_n", docs.size()); // Return all documents with scores
-
-            // Create HTTP request
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.jina.ai/v1/rerank"))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + jinaApiKey)
-                    .timeout(Duration.ofSeconds(5))
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
-                    .build();
-
-            // Send request
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() != 200) {
-                System.err.println("Jina API error: " + response.statusCode() + " - " + response.body());
-                return result;
+            for (ScoredDocument doc : scored) {
+                scores[positions.get(doc.getIndex())] = doc.getScore();
             }
+        }
+        return scores;
+    }
 
-            // Parse response
-            JsonNode responseJson = objectMapper.readTree(response.body());
-            JsonNode results = responseJson.get("results");
+    private CompletableFuture<List<ScoredDocument>> callRerankApi(String query, List<String> docs, String cacheKey) {
+        if (!circuitBreaker.tryAcquire()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        // Build request payload
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        requestBody.put("model", "jina-reranker-v3"); //jina-reranker-v2-base-multilingual
+        requestBody.put("query", query);
+
+        ArrayNode documentsArray = objectMapper.createArrayNode();
+        for (String doc : docs) {
+            documentsArray.add(doc);
+        }
+        requestBody.set("documents", documentsArray);
+        requestBody.put("top_n", docs.size()); // Return all documents with scores
+
+        // Create HTTP request
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.jina.ai/v1/rerank"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + jinaApiKey)
+                .timeout(requestTimeout)
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody.toString()))
+                .build();
+
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("Jina API error: " + response.statusCode() + " - " + response.body());
+                    }
+                    List<ScoredDocument> result = parseResults(response.body(), docs);
+                    synchronized (rerankCache) {
+                        rerankCache.put(cacheKey, new ArrayList<>(result));
+                    }
+                    return result;
+                })
+                .handle((result, ex) -> {
+                    boolean slow = System.nanoTime() - start > slowCallThreshold.toNanos();
+                    if (ex != null || slow) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                    if (ex != null) {
+                        log.warn("Failed to call Jina Reranker API: {}", ex.getMessage());
+                        return new ArrayList<>();
+                    }
+                    return result;
+                });
+    }
 
+    private List<ScoredDocument> parseResults(String body, List<String> docs) {
+        List<ScoredDocument> result = new ArrayList<>();
+        try {
+            JsonNode results = objectMapper.readTree(body).get("results");
             if (results != null && results.isArray()) {
                 for (JsonNode item : results) {
                     int index = item.get("index").asInt();
                     double score = item.get("relevance_score").asDouble();
-                    
+
                     if (index >= 0 && index < docs.size()) {
                         result.add(new ScoredDocument(index, docs.get(index), (float) score));
                     }
                 }
             }
-
-            // Sort by score descending
-            result.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
-            
-            // Cache the result
-            synchronized (rerankCache) {
-                rerankCache.put(cacheKey, new ArrayList<>(result));
-            }
-
         } catch (Exception e) {
-            System.err.println("Failed to call Jina Reranker API: " + e.getMessage());
-            e.printStackTrace();
+            throw new IllegalStateException("Invalid Jina API response", e);
         }
 
+        // Sort by score descending
+        result.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
         return result;
     }
-    
+
     private String generateCacheKey(String query, List<String> docs) {
         // Create a deterministic key from query + document hashes
         StringBuilder key = new StringBuilder(query.trim().toLowerCase());
@@ -157,7 +255,8 @@ public class JinaRerankerService {
         return key.toString();
     }
 
+    @Override
     public boolean isAvailable() {
-        return jinaApiKey != null && !jinaApiKey.isBlank();
+        return jinaApiKey != null && !jinaApiKey.isBlank() && !circuitBreaker.isOpen();
     }
 }
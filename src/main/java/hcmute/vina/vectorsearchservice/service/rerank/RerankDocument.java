@@ -0,0 +1,16 @@
+package hcmute.vina.vectorsearchservice.service.rerank;
+
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RerankDocument {
+	// Identifies the document for per-course caches, may be null
+	private UUID courseId;
+	private String text;
+}
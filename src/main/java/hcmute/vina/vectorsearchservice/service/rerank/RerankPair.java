@@ -0,0 +1,13 @@
+package hcmute.vina.vectorsearchservice.service.rerank;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RerankPair {
+	private String query;
+	private RerankDocument document;
+}
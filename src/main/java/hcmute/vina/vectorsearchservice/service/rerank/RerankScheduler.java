@@ -0,0 +1,137 @@
+package hcmute.vina.vectorsearchservice.service.rerank;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import hcmute.vina.vectorsearchservice.util.MicroBatcher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entry point for reranking from the search path.
+ *
+ * <p>With {@code search.rerank.batching.enabled}, the (query, document) pairs of concurrent
+ * searches are queued in a shared {@link MicroBatcher}, flushed to
+ * {@link RerankerService#scorePairs} when the batch is full or the oldest pair has waited
+ * {@code max-delay}, and the scores are handed back to each caller. The local cross-encoder
+ * then scores several searches in one forward pass; for Jina, identical queries collapse
+ * into one call. Otherwise each search calls the reranker directly.
+ *
+ * <p>Either way the caller waits at most {@code search.rerank.deadline}; past it the underlying
+ * future is cancelled, so pairs still queued for the local model are dropped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RerankScheduler {
+
+    private final RerankerService rerankerService;
+
+    @Value("${search.rerank.batching.enabled:false}")
+    private boolean batchingEnabled;
+
+    @Value("${search.rerank.batching.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${search.rerank.batching.max-delay:10ms}")
+    private Duration maxDelay;
+
+    // Batches scored at the same time
+    @Value("${search.rerank.batching.concurrency:2}")
+    private int concurrency;
+
+    @Value("${search.rerank.batching.queue-capacity:2048}")
+    private int queueCapacity;
+
+    // How long a search waits for rerank scores before using the hybrid ranking
+    @Value("${search.rerank.deadline:250ms}")
+    private Duration deadline;
+
+    private MicroBatcher<RerankPair, Float> batcher;
+
+    @PostConstruct
+    public void init() {
+        if (batchingEnabled) {
+            batcher = new MicroBatcher<>("rerank", maxBatchSize, maxDelay, concurrency, queueCapacity, this::scoreBatch);
+        }
+    }
+
+    public boolean isAvailable() {
+        return rerankerService.isAvailable();
+    }
+
+    /**
+     * Scores for every document, highest first. The returned future completes with an empty
+     * list when reranking fails or does not finish within {@code search.rerank.deadline}.
+     * A Jina call in flight then keeps running and fills the reranker's cache; local work
+     * that has not started is skipped.
+     */
+    public CompletableFuture<List<ScoredDocument>> rerankAsync(String query, List<RerankDocument> docs) {
+        CompletableFuture<List<ScoredDocument>> scored = batcher == null
+                ? rerankerService.rerankAsync(query, docs)
+                : submitPairs(query, docs);
+        CompletableFuture<List<ScoredDocument>> result = scored
+                .exceptionally(ex -> {
+                    log.warn("Rerank failed: {}", ex.getMessage());
+                    return new ArrayList<>();
+                })
+                .completeOnTimeout(new ArrayList<>(), deadline.toMillis(), TimeUnit.MILLISECONDS);
+        // Past the deadline nobody reads the scores
+        result.whenComplete((ignored, ex) -> {
+            if (!scored.isDone()) {
+                scored.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<List<ScoredDocument>> submitPairs(String query, List<RerankDocument> docs) {
+        if (docs == null || docs.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<CompletableFuture<Float>> futures = new ArrayList<>(docs.size());
+        for (RerankDocument doc : docs) {
+            futures.add(batcher.submit(new RerankPair(query, doc)));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        CompletableFuture<List<ScoredDocument>> scored = all.thenApply(ignored -> {
+            List<ScoredDocument> out = new ArrayList<>(docs.size());
+            for (int i = 0; i < docs.size(); i++) {
+                out.add(new ScoredDocument(i, docs.get(i).getText(), futures.get(i).join()));
+            }
+            out.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
+            return out;
+        });
+        // Cancelled pairs are dropped by the batcher before they reach the model
+        scored.whenComplete((ignored, ex) -> {
+            if (scored.isCancelled()) {
+                futures.forEach(future -> future.cancel(false));
+            }
+        });
+        return scored;
+    }
+
+    private List<Float> scoreBatch(List<RerankPair> pairs) {
+        float[] scores = rerankerService.scorePairs(pairs);
+        List<Float> boxed = new ArrayList<>(scores.length);
+        for (float score : scores) {
+            boxed.add(score);
+        }
+        return boxed;
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+}
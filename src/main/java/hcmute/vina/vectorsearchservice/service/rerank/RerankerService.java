@@ -0,0 +1,21 @@
+package hcmute.vina.vectorsearchservice.service.rerank;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface RerankerService {
+
+	// Scores for every document, highest first; ScoredDocument.index points into docs.
+	// Empty when the reranker is unavailable or the call failed.
+	List<ScoredDocument> batchRerank(String query, List<RerankDocument> docs);
+
+	// Same as batchRerank without blocking the caller. Cancelling the returned future tells
+	// the reranker the caller stopped waiting, so queued work can be skipped.
+	CompletableFuture<List<ScoredDocument>> rerankAsync(String query, List<RerankDocument> docs);
+
+	// One score per pair, in pair order; pairs may mix queries. Throws when scoring fails.
+	float[] scorePairs(List<RerankPair> pairs);
+
+	boolean isAvailable();
+
+}
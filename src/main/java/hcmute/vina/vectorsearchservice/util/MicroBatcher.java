@@ -0,0 +1,156 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Groups items submitted concurrently by many callers into batches for one handler call.
+ *
+ * <p>A dispatcher thread waits for a free worker, takes the first pending item, then keeps
+ * collecting until the batch is full or {@code maxDelay} has passed since that first item.
+ * While every worker is busy, items queue up and the next batch is correspondingly larger,
+ * so latency stays bounded under light load and throughput grows under heavy load.
+ *
+ * <p>The handler must return one output per input, in input order. A handler failure fails
+ * every item of that batch. Items whose future was completed or cancelled by the caller
+ * while queued are dropped from their batch.
+ */
+@Slf4j
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private record Pending<I, O>(I input, CompletableFuture<O> result) {
+    }
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final Function<List<I>, List<O>> handler;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<I, O>> queue;
+    private final Semaphore freeWorkers;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    public MicroBatcher(String name, int maxBatchSize, Duration maxDelay, int concurrency, int queueCapacity,
+            Function<List<I>, List<O>> handler) {
+        this.handler = handler;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.freeWorkers = new Semaphore(Math.max(1, concurrency));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread thread = new Thread(r, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, name + "-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queue one item. The future fails with {@link RejectedExecutionException} when the
+     * queue is full or the batcher is closed.
+     */
+    public CompletableFuture<O> submit(I input) {
+        CompletableFuture<O> result = new CompletableFuture<>();
+        if (closed || !queue.offer(new Pending<>(input, result))) {
+            result.completeExceptionally(new RejectedExecutionException("Batcher queue is full or closed"));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        workers.shutdownNow();
+        List<Pending<I, O>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(p -> p.result().completeExceptionally(new RejectedExecutionException("Batcher closed")));
+    }
+
+    private void dispatchLoop() {
+        while (!closed) {
+            try {
+                freeWorkers.acquire();
+                List<Pending<I, O>> batch = collectBatch();
+                if (batch.isEmpty()) {
+                    freeWorkers.release();
+                    continue;
+                }
+                workers.execute(() -> {
+                    try {
+                        run(batch);
+                    } finally {
+                        freeWorkers.release();
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    private List<Pending<I, O>> collectBatch() throws InterruptedException {
+        List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+        Pending<I, O> first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                break;
+            }
+            Pending<I, O> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void run(List<Pending<I, O>> pending) {
+        List<Pending<I, O>> batch = pending.stream().filter(p -> !p.result().isDone()).toList();
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<O> outputs = handler.apply(batch.stream().map(Pending::input).toList());
+            if (outputs.size() != batch.size()) {
+                throw new IllegalStateException("Batch handler returned " + outputs.size()
+                        + " results for " + batch.size() + " inputs");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(outputs.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            log.warn("Batch of {} items failed: {}", batch.size(), e.getMessage());
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class RankFusion {
+
+    /**
+     * Reciprocal rank fusion: each item scores {@code sum(1 / (k + rank))} over the rankings
+     * it appears in (rank starting at 1), and items are returned best first. Ties keep the
+     * order of first appearance, so earlier rankings win them.
+     */
+    public static <T> List<T> reciprocalRank(List<List<T>> rankings, int k) {
+        Map<T, Double> scores = new HashMap<>();
+        List<T> items = new ArrayList<>();
+        for (List<T> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                T item = ranking.get(i);
+                double contribution = 1.0 / (k + i + 1);
+                if (scores.merge(item, contribution, Double::sum) == contribution) {
+                    items.add(item);
+                }
+            }
+        }
+        // List.sort is stable, keeping first-appearance order for equal scores
+        items.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        return items;
+    }
+}
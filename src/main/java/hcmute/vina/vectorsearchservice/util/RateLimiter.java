@@ -0,0 +1,36 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evenly spaced permits shared by all callers; {@code acquire} sleeps until the caller's
+ * slot. A non-positive rate disables limiting.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextSlot;
+
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.nextSlot = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextSlot < now) {
+                nextSlot = now;
+            }
+            wait = nextSlot - now;
+            nextSlot += intervalNanos;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import java.math.BigDecimal;
+import java.util.StringJoiner;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class RerankText {
+
+    // Description kept concise; shorter helps reranker latency
+    public static final int MAX_DESCRIPTION_CHARS = 500;
+
+    /**
+     * Document sent to the reranker for a course: name first, then the start of the plain
+     * text description, instructor, category and price, separated by {@code " | "}.
+     */
+    public static String build(String name, String plainDescription, String instructorName,
+            String categoryName, BigDecimal price) {
+        StringJoiner sj = new StringJoiner(" | ");
+        if (name != null) sj.add(name);
+        if (plainDescription != null && !plainDescription.isEmpty()) {
+            sj.add(plainDescription.length() > MAX_DESCRIPTION_CHARS
+                    ? plainDescription.substring(0, MAX_DESCRIPTION_CHARS)
+                    : plainDescription);
+        }
+        if (instructorName != null) sj.add(instructorName);
+        if (categoryName != null) sj.add(categoryName);
+        if (price != null) sj.add(price.toPlainString());
+        return sj.toString().trim();
+    }
+}
@@ -0,0 +1,47 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class TextNormalizer {
+
+    /**
+     * Lower-case, trim and collapse whitespace runs to a single space, in one pass over the
+     * text. Same result as {@code s.toLowerCase().trim().replaceAll("\\s+", " ")}.
+     */
+    public static String normalize(String s) {
+        if (s == null || s.isEmpty()) {
+            return "";
+        }
+        String lower = s.toLowerCase();
+        // Same ends as String.trim, which also drops control characters that \s does not match
+        int start = 0;
+        int end = lower.length();
+        while (start < end && lower.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && lower.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        boolean inSpace = false;
+        for (int i = start; i < end; i++) {
+            char ch = lower.charAt(i);
+            if (isSpace(ch)) {
+                if (!inSpace) {
+                    sb.append(' ');
+                    inSpace = true;
+                }
+                continue;
+            }
+            inSpace = false;
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    // The characters matched by \s in java.util.regex
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+    }
+}
@@ -0,0 +1,76 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps tokens of normalized text to small int ids so token sets can be compared as sorted
+ * int arrays. Only catalog text is interned; query tokens are looked up, so arbitrary
+ * queries cannot grow the dictionary.
+ */
+public class TokenDictionary {
+
+    public static final int UNKNOWN = -1;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Sorted, distinct ids of the space-separated tokens of {@code normalized}, interning
+     * tokens seen for the first time.
+     */
+    public int[] internSet(String normalized) {
+        int[] tokens = new int[countTokens(normalized)];
+        int n = 0;
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = tokenEnd(normalized, start);
+            tokens[n++] = ids.computeIfAbsent(normalized.substring(start, end), t -> nextId.getAndIncrement());
+            start = end + 1;
+        }
+        Arrays.sort(tokens);
+        int distinct = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i == 0 || tokens[i] != tokens[i - 1]) {
+                tokens[distinct++] = tokens[i];
+            }
+        }
+        return distinct == tokens.length ? tokens : Arrays.copyOf(tokens, distinct);
+    }
+
+    /**
+     * Ids of the space-separated tokens of {@code normalized} in order, duplicates kept;
+     * tokens never interned get {@link #UNKNOWN}.
+     */
+    public int[] lookupAll(String normalized) {
+        int[] tokens = new int[countTokens(normalized)];
+        int n = 0;
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = tokenEnd(normalized, start);
+            tokens[n++] = ids.getOrDefault(normalized.substring(start, end), UNKNOWN);
+            start = end + 1;
+        }
+        return tokens;
+    }
+
+    private static int countTokens(String normalized) {
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int tokenEnd(String normalized, int start) {
+        int end = normalized.indexOf(' ', start);
+        return end < 0 ? normalized.length() : end;
+    }
+}
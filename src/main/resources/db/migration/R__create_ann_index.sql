@@ -0,0 +1,47 @@
+-- Nearest neighbour index of course_search_doc for search.ann.mode (${ann_mode}). Only the
+-- index of the configured mode is kept, so a single HNSW graph has to stay in memory and be
+-- maintained on writes:
+--   full     float32 embedding, 4 bytes per dimension
+--   halfvec  float16 copy, half the size
+--   binary   sign bits compared by Hamming distance, 1 bit per dimension
+--   short    float16 over the leading ${ann_short_dimension} dimensions; text-embedding-3 vectors
+--            are Matryoshka-trained, so a prefix is a valid lower-dimension embedding
+-- Repeatable: changing the ann_mode or ann_short_dimension placeholder rebuilds it.
+
+DO $$
+BEGIN
+    IF '${ann_mode}' NOT IN ('full', 'halfvec', 'binary', 'short') THEN
+        RAISE EXCEPTION 'Unknown search.ann.mode: ${ann_mode}';
+    END IF;
+
+    IF '${ann_mode}' <> 'full' THEN
+        DROP INDEX IF EXISTS idx_course_search_doc_hnsw;
+    END IF;
+    IF '${ann_mode}' <> 'halfvec' THEN
+        DROP INDEX IF EXISTS idx_course_search_doc_hnsw_halfvec;
+    END IF;
+    IF '${ann_mode}' <> 'binary' THEN
+        DROP INDEX IF EXISTS idx_course_search_doc_hnsw_bit;
+    END IF;
+    -- Always rebuilt when used, the dimension may have changed
+    DROP INDEX IF EXISTS idx_course_search_doc_hnsw_short;
+
+    IF '${ann_mode}' = 'full' THEN
+        CREATE INDEX IF NOT EXISTS idx_course_search_doc_hnsw
+            ON course_search_doc
+            USING hnsw (embedding vector_cosine_ops);
+    ELSIF '${ann_mode}' = 'halfvec' THEN
+        CREATE INDEX IF NOT EXISTS idx_course_search_doc_hnsw_halfvec
+            ON course_search_doc
+            USING hnsw ((embedding::halfvec(1536)) halfvec_cosine_ops);
+    ELSIF '${ann_mode}' = 'binary' THEN
+        CREATE INDEX IF NOT EXISTS idx_course_search_doc_hnsw_bit
+            ON course_search_doc
+            USING hnsw ((binary_quantize(embedding)::bit(1536)) bit_hamming_ops);
+    ELSE
+        CREATE INDEX idx_course_search_doc_hnsw_short
+            ON course_search_doc
+            USING hnsw ((subvector(embedding, 1, ${ann_short_dimension})::halfvec(${ann_short_dimension})) halfvec_cosine_ops);
+    END IF;
+END
+$$;
@@ -0,0 +1,32 @@
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() is only STABLE; an IMMUTABLE wrapper with a fixed dictionary can be used in indexes
+CREATE OR REPLACE FUNCTION f_unaccent(text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$;
+
+-- Weighted full-text document of a course: name (A), category and instructors (B),
+-- description without HTML tags (C). 'simple' keeps Vietnamese words unstemmed.
+CREATE OR REPLACE FUNCTION course_search_tsv(p_course_id UUID) RETURNS tsvector
+    LANGUAGE sql STABLE
+AS $$
+    SELECT setweight(to_tsvector('simple', f_unaccent(COALESCE(c.name, ''))), 'A')
+        || setweight(to_tsvector('simple', f_unaccent(COALESCE(cate.name, '') || ' '
+               || COALESCE((SELECT string_agg(u.full_name, ' ')
+                            FROM course_instructor ci
+                            INNER JOIN users u ON ci.user_id = u.id
+                            WHERE ci.course_id = c.id), ''))), 'B')
+        || setweight(to_tsvector('simple', f_unaccent(
+               regexp_replace(COALESCE(c.description, ''), '<[^>]*>', ' ', 'g'))), 'C')
+    FROM courses c
+    LEFT JOIN categories cate ON c.category_id = cate.id
+    WHERE c.id = p_course_id
+$$;
+
+ALTER TABLE course_embedding ADD COLUMN IF NOT EXISTS search_tsv tsvector;
+
+UPDATE course_embedding SET search_tsv = course_search_tsv(course_id);
+
+CREATE INDEX IF NOT EXISTS idx_course_embedding_search_tsv
+    ON course_embedding
+    USING gin (search_tsv);
@@ -0,0 +1,10 @@
+-- Normalized text used by lexical scoring, written by the indexer (Jsoup-cleaned description).
+ALTER TABLE course_embedding
+    ADD COLUMN IF NOT EXISTS name_norm TEXT,
+    ADD COLUMN IF NOT EXISTS category_norm TEXT,
+    ADD COLUMN IF NOT EXISTS description_norm TEXT;
+
+-- CourseFeatures.VERSION the columns were derived with. Existing rows stay NULL and are
+-- filled by the background backfill with the same Java code as the indexer, without
+-- re-embedding; search computes the features itself until then.
+ALTER TABLE course_embedding ADD COLUMN IF NOT EXISTS features_version INT;
@@ -0,0 +1,4 @@
+-- Ready-to-use reranker document (plain text, description cut), written by the indexer.
+-- Part of the features covered by features_version: existing rows are filled by the
+-- background backfill with RerankText, search builds the document itself until then.
+ALTER TABLE course_embedding ADD COLUMN IF NOT EXISTS rerank_doc TEXT;
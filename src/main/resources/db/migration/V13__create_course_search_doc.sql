@@ -0,0 +1,163 @@
+-- Denormalized search projection owned by this service: one row per indexed course with
+-- the embedding, filter columns, display fields and lexical features, so every search
+-- stage reads a single table. Rows are refreshed from the catalog and course_embedding
+-- by refresh_course_search_doc() after indexing and periodically.
+CREATE TABLE IF NOT EXISTS course_search_doc (
+    course_id UUID PRIMARY KEY,
+    embedding vector(1536),
+    -- Model the embedding came from; vector search compares only rows of the current model
+    embedding_model TEXT,
+    name TEXT,
+    slug TEXT,
+    image TEXT,
+    description TEXT,
+    price NUMERIC,
+    level TEXT,
+    status TEXT,
+    language TEXT,
+    rating DOUBLE PRECISION,
+    total_rating BIGINT,
+    total_student BIGINT,
+    total_section BIGINT,
+    total_lesson BIGINT,
+    category_slug TEXT,
+    category_name TEXT,
+    -- Owner's name for display; every instructor for the instructor filter
+    instructor_name TEXT,
+    instructor_ids UUID[] NOT NULL DEFAULT '{}',
+    name_norm TEXT,
+    category_norm TEXT,
+    description_norm TEXT,
+    rerank_doc TEXT,
+    search_tsv tsvector,
+    -- Hash of the text search_tsv was built from, so unchanged courses skip rebuilding it
+    search_tsv_hash TEXT,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Refresh the given courses, or every course when p_course_ids is NULL. Courses without an
+-- embedding, category or instructor cannot be searched and have no row.
+CREATE OR REPLACE FUNCTION refresh_course_search_doc(p_course_ids UUID[]) RETURNS void
+    LANGUAGE sql
+AS $$
+    DELETE FROM course_search_doc d
+    WHERE (p_course_ids IS NULL OR d.course_id = ANY(p_course_ids))
+      AND NOT EXISTS (
+        SELECT 1
+        FROM courses c
+        INNER JOIN categories cate ON c.category_id = cate.id
+        INNER JOIN course_embedding ce ON ce.course_id = c.id AND ce.embedding IS NOT NULL
+        WHERE c.id = d.course_id
+          AND EXISTS (SELECT 1 FROM course_instructor ci WHERE ci.course_id = c.id)
+      );
+
+    INSERT INTO course_search_doc AS d (
+        course_id, embedding, embedding_model, name, slug, image, description, price, level, status,
+        language, rating, total_rating, total_student, total_section, total_lesson,
+        category_slug, category_name, instructor_name, instructor_ids,
+        name_norm, category_norm, description_norm, rerank_doc, search_tsv, search_tsv_hash, updated_at)
+    SELECT c.id, ce.embedding, ce.embedding_model, c.name, c.slug, c.image, LEFT(c.description, 4000),
+           c.price, c.level, c.status, c.language,
+           c.rating, c.total_rating, c.total_student, c.total_section, c.total_lesson,
+           cate.slug, cate.name, owner.full_name, instructors.ids,
+           ce.name_norm, ce.category_norm, ce.description_norm, ce.rerank_doc,
+           CASE WHEN existing.search_tsv_hash = src.hash THEN existing.search_tsv
+                ELSE course_search_tsv(c.id) END,
+           src.hash, now()
+    FROM courses c
+    INNER JOIN categories cate ON c.category_id = cate.id
+    INNER JOIN course_embedding ce ON ce.course_id = c.id AND ce.embedding IS NOT NULL
+    INNER JOIN LATERAL (
+        SELECT u.full_name
+        FROM course_instructor ci
+        INNER JOIN users u ON ci.user_id = u.id
+        WHERE ci.course_id = c.id
+        ORDER BY ci.is_owner DESC NULLS LAST
+        LIMIT 1
+    ) owner ON TRUE
+    CROSS JOIN LATERAL (
+        SELECT ARRAY_AGG(ci.user_id ORDER BY ci.user_id) AS ids,
+               string_agg(u.full_name, ' ' ORDER BY u.full_name) AS names
+        FROM course_instructor ci
+        LEFT JOIN users u ON ci.user_id = u.id
+        WHERE ci.course_id = c.id
+    ) instructors
+    CROSS JOIN LATERAL (
+        SELECT md5(concat_ws(E'\x1f', c.name, cate.name, instructors.names, c.description)) AS hash
+    ) src
+    LEFT JOIN course_search_doc existing ON existing.course_id = c.id
+    WHERE p_course_ids IS NULL OR c.id = ANY(p_course_ids)
+    ON CONFLICT (course_id) DO UPDATE SET
+        embedding = EXCLUDED.embedding,
+        embedding_model = EXCLUDED.embedding_model,
+        name = EXCLUDED.name,
+        slug = EXCLUDED.slug,
+        image = EXCLUDED.image,
+        description = EXCLUDED.description,
+        price = EXCLUDED.price,
+        level = EXCLUDED.level,
+        status = EXCLUDED.status,
+        language = EXCLUDED.language,
+        rating = EXCLUDED.rating,
+        total_rating = EXCLUDED.total_rating,
+        total_student = EXCLUDED.total_student,
+        total_section = EXCLUDED.total_section,
+        total_lesson = EXCLUDED.total_lesson,
+        category_slug = EXCLUDED.category_slug,
+        category_name = EXCLUDED.category_name,
+        instructor_name = EXCLUDED.instructor_name,
+        instructor_ids = EXCLUDED.instructor_ids,
+        name_norm = EXCLUDED.name_norm,
+        category_norm = EXCLUDED.category_norm,
+        description_norm = EXCLUDED.description_norm,
+        rerank_doc = EXCLUDED.rerank_doc,
+        search_tsv = EXCLUDED.search_tsv,
+        search_tsv_hash = EXCLUDED.search_tsv_hash,
+        updated_at = EXCLUDED.updated_at
+    -- Unchanged rows are left alone: every rewrite is a new tuple in each index
+    WHERE (d.embedding, d.embedding_model, d.name, d.slug, d.image, d.description, d.price, d.level, d.status,
+           d.language, d.rating, d.total_rating, d.total_student, d.total_section, d.total_lesson,
+           d.category_slug, d.category_name, d.instructor_name, d.instructor_ids,
+           d.name_norm, d.category_norm, d.description_norm, d.rerank_doc, d.search_tsv_hash)
+        IS DISTINCT FROM
+          (EXCLUDED.embedding, EXCLUDED.embedding_model, EXCLUDED.name, EXCLUDED.slug, EXCLUDED.image, EXCLUDED.description,
+           EXCLUDED.price, EXCLUDED.level, EXCLUDED.status, EXCLUDED.language, EXCLUDED.rating,
+           EXCLUDED.total_rating, EXCLUDED.total_student, EXCLUDED.total_section, EXCLUDED.total_lesson,
+           EXCLUDED.category_slug, EXCLUDED.category_name, EXCLUDED.instructor_name, EXCLUDED.instructor_ids,
+           EXCLUDED.name_norm, EXCLUDED.category_norm, EXCLUDED.description_norm, EXCLUDED.rerank_doc,
+           EXCLUDED.search_tsv_hash);
+$$;
+
+-- Full refresh run by at most one instance at a time; returns false when another instance
+-- holds the lock. The transaction-scoped lock is released when the statement commits.
+CREATE OR REPLACE FUNCTION refresh_all_course_search_doc() RETURNS boolean
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT pg_try_advisory_xact_lock(hashtext('refresh_course_search_doc')) THEN
+        RETURN false;
+    END IF;
+    PERFORM refresh_course_search_doc(NULL);
+    RETURN true;
+END
+$$;
+
+SELECT refresh_course_search_doc(NULL);
+
+-- The nearest neighbour index depends on search.ann.mode and is built by R__create_ann_index
+CREATE INDEX IF NOT EXISTS idx_course_search_doc_search_tsv
+    ON course_search_doc
+    USING gin (search_tsv);
+
+-- Drive exact scans of narrow filters
+CREATE INDEX IF NOT EXISTS idx_course_search_doc_category_slug
+    ON course_search_doc (category_slug);
+
+CREATE INDEX IF NOT EXISTS idx_course_search_doc_instructor_ids
+    ON course_search_doc
+    USING gin (instructor_ids);
+
+-- Search no longer reads course_embedding; its copies of these indexes only cost writes
+DROP INDEX IF EXISTS idx_course_embedding_hnsw;
+DROP INDEX IF EXISTS idx_course_embedding_search_tsv;
+ALTER TABLE course_embedding DROP COLUMN IF EXISTS search_tsv;
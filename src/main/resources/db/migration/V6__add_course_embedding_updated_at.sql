@@ -0,0 +1,5 @@
+ALTER TABLE course_embedding
+    ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_course_embedding_updated_at
+    ON course_embedding (updated_at);
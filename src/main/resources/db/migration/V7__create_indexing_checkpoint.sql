@@ -0,0 +1,12 @@
+CREATE TABLE IF NOT EXISTS indexing_checkpoint (
+    job_name VARCHAR(100) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    last_course_id UUID,
+    indexed BIGINT NOT NULL DEFAULT 0,
+    failed BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMPTZ,
+    updated_at TIMESTAMPTZ,
+    -- Instance running the job and until when; another instance may take over after that
+    lease_owner VARCHAR(100),
+    lease_until TIMESTAMPTZ
+);
@@ -0,0 +1,4 @@
+ALTER TABLE course_embedding
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS embedding_model VARCHAR(100),
+    ADD COLUMN IF NOT EXISTS embedding_dim INTEGER;
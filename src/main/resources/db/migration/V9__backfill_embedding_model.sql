@@ -0,0 +1,5 @@
+-- Rows written before V8 all come from OpenAI text-embedding-3-small (see V5)
+UPDATE course_embedding
+SET embedding_model = 'text-embedding-3-small',
+    embedding_dim = 1536
+WHERE embedding_model IS NULL;
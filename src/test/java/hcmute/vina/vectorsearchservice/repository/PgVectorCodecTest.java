@@ -0,0 +1,47 @@
+package hcmute.vina.vectorsearchservice.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class PgVectorCodecTest {
+
+    @Test
+    void encodeWritesPgvectorWireFormat() {
+        byte[] bytes = PgVectorCodec.encode(new float[] {1.5f, -2f, 0f});
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        assertEquals(4 + 3 * Float.BYTES, bytes.length);
+        assertEquals(3, buffer.getShort());
+        assertEquals(0, buffer.getShort());
+        assertEquals(1.5f, buffer.getFloat());
+        assertEquals(-2f, buffer.getFloat());
+        assertEquals(0f, buffer.getFloat());
+    }
+
+    @Test
+    void decodeReversesEncode() {
+        float[] vector = new float[PgVectorCodec.STORED_DIMENSION];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) Math.sin(i) / (i + 1);
+        }
+        vector[7] = Float.MIN_VALUE;
+        vector[8] = -0f;
+
+        assertArrayEquals(vector, PgVectorCodec.decode(PgVectorCodec.encode(vector)));
+    }
+
+    @Test
+    void decodeOfNullIsNull() {
+        assertNull(PgVectorCodec.decode(null));
+    }
+
+    @Test
+    void emptyVectorRoundTrips() {
+        assertArrayEquals(new float[0], PgVectorCodec.decode(PgVectorCodec.encode(new float[0])));
+    }
+}
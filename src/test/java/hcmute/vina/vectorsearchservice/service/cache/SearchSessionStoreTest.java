@@ -0,0 +1,81 @@
+package hcmute.vina.vectorsearchservice.service.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import hcmute.vina.vectorsearchservice.dto.SearchSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SearchSessionStoreTest {
+
+    private static SearchSession session(String requestKey, int size) {
+        UUID[] ids = new UUID[size];
+        float[] scores = new float[size];
+        double[] distances = new double[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UUID.randomUUID();
+            scores[i] = 1f / (i + 1);
+            distances[i] = i * 0.01;
+        }
+        return new SearchSession(requestKey, ids, scores, distances);
+    }
+
+    private static SearchSessionStore localStore() {
+        ObjectProvider<RedisTemplate<String, byte[]>> noRedis = new StaticListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(RedisTemplate.class, String.class, byte[].class));
+        return new SearchSessionStore(1 << 20, Duration.ofMinutes(10), noRedis, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void decodeReversesEncode() {
+        SearchSession session = session("keyword=lập trình|semantic=true", 100);
+        session.getRelevanceScores()[3] = Float.NaN;
+        session.getDistances()[4] = Double.MAX_VALUE;
+
+        SearchSession decoded = SearchSessionStore.decode(SearchSessionStore.encode(session));
+
+        assertEquals(session.getRequestKey(), decoded.getRequestKey());
+        assertArrayEquals(session.getCourseIds(), decoded.getCourseIds());
+        assertArrayEquals(session.getRelevanceScores(), decoded.getRelevanceScores());
+        assertArrayEquals(session.getDistances(), decoded.getDistances());
+    }
+
+    @Test
+    void emptySessionRoundTrips() {
+        SearchSession decoded = SearchSessionStore.decode(SearchSessionStore.encode(session("", 0)));
+
+        assertEquals("", decoded.getRequestKey());
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    void savedSessionIsReadBackByItsCursor() {
+        SearchSessionStore store = localStore();
+        SearchSession first = session("a", 20);
+        SearchSession second = session("b", 20);
+
+        String firstCursor = store.save(first);
+        String secondCursor = store.save(second);
+
+        assertNotEquals(firstCursor, secondCursor);
+        assertSame(first, store.get(firstCursor));
+        assertSame(second, store.get(secondCursor));
+    }
+
+    @Test
+    void unknownCursorIsAMiss() {
+        assertNull(localStore().get(UUID.randomUUID().toString()));
+    }
+}
@@ -0,0 +1,79 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class HnswGraphTest {
+
+    private static final int DIMENSION = 16;
+
+    private final Random random = new Random(11);
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private List<UUID> load(HnswGraph graph, int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            graph.upsert(id, randomVector());
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static List<UUID> ids(List<VectorHit> hits) {
+        return hits.stream().map(VectorHit::getCourseId).toList();
+    }
+
+    @Test
+    void removedCourseIsNeverReturned() {
+        HnswGraph graph = new HnswGraph(DIMENSION, 8, 64, 16);
+        List<UUID> ids = load(graph, 200);
+        float[] query = randomVector();
+        UUID nearest = graph.search(query, 1, 64).get(0).getCourseId();
+
+        assertTrue(graph.remove(nearest));
+        assertFalse(graph.remove(nearest));
+
+        assertFalse(ids(graph.search(query, 200, 200)).contains(nearest));
+        assertEquals(199, graph.liveSize());
+        assertEquals(1, graph.deletedCount());
+    }
+
+    @Test
+    void retainAllTombstonesCoursesOutsideTheSet() {
+        HnswGraph graph = new HnswGraph(DIMENSION, 8, 64, 16);
+        List<UUID> ids = load(graph, 100);
+        Set<UUID> kept = Set.copyOf(ids.subList(0, 60));
+
+        assertEquals(40, graph.retainAll(kept));
+
+        assertEquals(60, graph.liveSize());
+        assertTrue(kept.containsAll(ids(graph.search(randomVector(), 100, 100))));
+    }
+
+    @Test
+    void absentListsCoursesNotInTheGraph() {
+        HnswGraph graph = new HnswGraph(DIMENSION, 8, 64, 16);
+        List<UUID> ids = load(graph, 10);
+        UUID missing = UUID.randomUUID();
+        graph.remove(ids.get(0));
+
+        assertEquals(Set.of(missing, ids.get(0)), Set.copyOf(graph.absent(Set.of(missing, ids.get(0), ids.get(1)))));
+    }
+}
@@ -0,0 +1,150 @@
+package hcmute.vina.vectorsearchservice.service.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapVectorMatrixTest {
+
+    // Not a multiple of four, so the remainder loop of the distance is exercised
+    private static final int DIMENSION = 37;
+
+    private final Random random = new Random(7);
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosineDistance(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return 1 - dot / Math.sqrt(normA * normB);
+    }
+
+    private static List<UUID> bruteForce(Map<UUID, float[]> vectors, List<UUID> candidates, float[] query, int k) {
+        return candidates.stream()
+                .sorted(Comparator.comparingDouble(id -> cosineDistance(vectors.get(id), query)))
+                .limit(k)
+                .toList();
+    }
+
+    private Map<UUID, float[]> load(OffHeapVectorMatrix matrix, int count) {
+        Map<UUID, float[]> vectors = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            // Ids from the seeded generator keep candidate order, and so the test, deterministic
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            float[] vector = randomVector();
+            vectors.put(id, vector);
+            matrix.upsert(id, vector);
+        }
+        return vectors;
+    }
+
+    private static List<UUID> ids(List<VectorHit> hits) {
+        return hits.stream().map(VectorHit::getCourseId).toList();
+    }
+
+    @Test
+    void topKMatchesBruteForceAcrossChunks() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        Map<UUID, float[]> vectors = load(matrix, OffHeapVectorMatrix.CHUNK_ROWS * 2 + 100);
+        List<UUID> candidates = new ArrayList<>(vectors.keySet());
+        float[] query = randomVector();
+
+        List<VectorHit> hits = matrix.search(query, candidates, 25);
+
+        assertEquals(OffHeapVectorMatrix.CHUNK_ROWS * 2 + 100, matrix.size());
+        assertEquals(bruteForce(vectors, candidates, query, 25), ids(hits));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getDistance() <= hits.get(i).getDistance());
+        }
+        assertEquals(cosineDistance(vectors.get(hits.get(0).getCourseId()), query), hits.get(0).getDistance(), 1e-5);
+    }
+
+    @Test
+    void parallelSplitScoresLikeSerial() {
+        OffHeapVectorMatrix serial = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        OffHeapVectorMatrix parallel = new OffHeapVectorMatrix(DIMENSION, 7);
+        Map<UUID, float[]> vectors = load(serial, 1000);
+        vectors.forEach(parallel::upsert);
+        List<UUID> candidates = new ArrayList<>(vectors.keySet()).subList(0, 613);
+        float[] query = randomVector();
+
+        List<VectorHit> expected = serial.search(query, candidates, 50);
+        List<VectorHit> actual = parallel.search(query, candidates, 50);
+
+        assertEquals(ids(expected), ids(actual));
+        assertEquals(bruteForce(vectors, candidates, query, 50), ids(actual));
+    }
+
+    @Test
+    void searchesOnlyTheGivenCandidates() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        Map<UUID, float[]> vectors = load(matrix, 200);
+        List<UUID> candidates = new ArrayList<>(vectors.keySet()).subList(50, 60);
+        float[] query = randomVector();
+
+        List<VectorHit> hits = matrix.search(query, candidates, 100);
+
+        assertEquals(bruteForce(vectors, candidates, query, 100), ids(hits));
+    }
+
+    @Test
+    void upsertOverwritesTheRow() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        UUID id = UUID.randomUUID();
+        float[] query = randomVector();
+        matrix.upsert(id, randomVector());
+
+        assertTrue(matrix.upsert(id, query));
+        assertFalse(matrix.upsert(id, query));
+
+        assertEquals(1, matrix.size());
+        assertEquals(0, matrix.search(query, List.of(id), 1).get(0).getDistance(), 1e-5);
+    }
+
+    @Test
+    void missingCandidateReturnsNull() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        Map<UUID, float[]> vectors = load(matrix, 10);
+        List<UUID> candidates = new ArrayList<>(vectors.keySet());
+        candidates.add(UUID.randomUUID());
+
+        assertNull(matrix.search(randomVector(), candidates, 5));
+    }
+
+    @Test
+    void zeroKGivesNoHits() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+        Map<UUID, float[]> vectors = load(matrix, 10);
+
+        assertEquals(List.of(), matrix.search(randomVector(), vectors.keySet(), 0));
+    }
+
+    @Test
+    void rejectsVectorsOfAnotherDimension() {
+        OffHeapVectorMatrix matrix = new OffHeapVectorMatrix(DIMENSION, Integer.MAX_VALUE);
+
+        assertThrows(IllegalArgumentException.class, () -> matrix.upsert(UUID.randomUUID(), new float[DIMENSION + 1]));
+    }
+}
@@ -0,0 +1,47 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RankFusionTest {
+
+    @Test
+    void itemsInBothRankingsComeFirst() {
+        List<String> vector = List.of("a", "b", "c");
+        List<String> lexical = List.of("d", "c", "b");
+
+        assertEquals(List.of("b", "c", "a", "d"), RankFusion.reciprocalRank(List.of(vector, lexical), 60));
+    }
+
+    @Test
+    void topRankInOneListBeatsMiddleRankInBoth() {
+        // a and c score 1/61 + 1/63, which beats b at 2/62; a appeared first
+        List<String> first = List.of("a", "b", "c");
+        List<String> second = List.of("c", "b", "a");
+
+        assertEquals(List.of("a", "c", "b"), RankFusion.reciprocalRank(List.of(first, second), 60));
+    }
+
+    @Test
+    void tiesKeepFirstAppearanceOrder() {
+        List<String> first = List.of("a", "b");
+        List<String> second = List.of("c", "d");
+
+        assertEquals(List.of("a", "c", "b", "d"), RankFusion.reciprocalRank(List.of(first, second), 60));
+    }
+
+    @Test
+    void singleRankingKeepsItsOrder() {
+        List<Integer> ranking = List.of(5, 3, 9, 1);
+
+        assertEquals(ranking, RankFusion.reciprocalRank(List.of(ranking), 60));
+    }
+
+    @Test
+    void emptyRankingsGiveEmptyResult() {
+        assertEquals(List.of(), RankFusion.reciprocalRank(List.of(List.of(), List.of()), 60));
+    }
+}
@@ -0,0 +1,46 @@
+package hcmute.vina.vectorsearchservice.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TextNormalizerTest {
+
+    private static String regexNormalize(String s) {
+        return s.toLowerCase().trim().replaceAll("\\s+", " ");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", " ", "   ", "Java", "  Spring   Boot  ", "Lập trình\tJava\n\ncơ bản",
+            "a\u000Bb\fc\rd", "\u0001Java\u0001", " \u0000 x \u0000 ", "x\u0001 \u0001y",
+            " non-breaking ", " em space", "İSTANBUL", "ÀÉÎÕÜ"
+    })
+    void matchesTheRegexVersion(String text) {
+        assertEquals(regexNormalize(text), TextNormalizer.normalize(text));
+    }
+
+    @Test
+    void matchesTheRegexVersionOnRandomText() {
+        char[] alphabet = {'a', 'B', 'ễ', ' ', '\t', '\n', '\r', '\f', '\u000B', '\u0000', '\u001F', ' '};
+        Random random = new Random(42);
+        for (int n = 0; n < 10_000; n++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String text = new String(chars);
+            assertEquals(regexNormalize(text), TextNormalizer.normalize(text),
+                    () -> "chars " + text.chars().boxed().toList());
+        }
+    }
+
+    @Test
+    void nullIsEmpty() {
+        assertEquals("", TextNormalizer.normalize(null));
+    }
+}